@@ -1,8 +1,6 @@
 package com.tiktok.ic.camera.Adapter;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,50 +12,45 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tiktok.ic.camera.R;
+import com.tiktok.ic.camera.media.MediaAlbum;
+import com.tiktok.ic.camera.thumbnail.ThumbnailLoader;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 相册列表适配器
  * 用于在ListView中显示相册文件夹，包含文件夹名称、图片数量和缩略图
  */
-public class AlbumAdapter extends ArrayAdapter<String> {
+public class AlbumAdapter extends ArrayAdapter<MediaAlbum> {
 
     private Context context;
-    private List<String> folderNames;
-    private Map<String, List<String>> imageFolders;
-    private Map<String, Bitmap> thumbnailCache;
+    private List<MediaAlbum> albums;
     private final int THUMBNAIL_SIZE = 100;
 
-    public AlbumAdapter(@NonNull Context context, List<String> folderNames, Map<String, List<String>> imageFolders) {
-        super(context, 0, folderNames);
+    public AlbumAdapter(@NonNull Context context, List<MediaAlbum> albums) {
+        super(context, 0, albums);
         this.context = context;
-        this.folderNames = new ArrayList<>(folderNames);
-        this.imageFolders = imageFolders;
-        this.thumbnailCache = new HashMap<>();
+        this.albums = new ArrayList<>(albums);
     }
 
-    public void setFolders(List<String> folderNames, Map<String, List<String>> imageFolders) {
-        this.folderNames = new ArrayList<>(folderNames);
-        this.imageFolders = imageFolders;
+    public void setAlbums(List<MediaAlbum> albums) {
+        this.albums = new ArrayList<>(albums);
         notifyDataSetChanged();
     }
 
     @Override
     public int getCount() {
-        return folderNames == null ? 0 : folderNames.size();
+        return albums == null ? 0 : albums.size();
     }
 
     @Nullable
     @Override
-    public String getItem(int position) {
-        if (folderNames == null || position < 0 || position >= folderNames.size()) {
+    public MediaAlbum getItem(int position) {
+        if (albums == null || position < 0 || position >= albums.size()) {
             return null;
         }
-        return folderNames.get(position);
+        return albums.get(position);
     }
 
     @NonNull
@@ -76,36 +69,20 @@ public class AlbumAdapter extends ArrayAdapter<String> {
             holder = (AlbumViewHolder) convertView.getTag();
         }
 
-        String folderName = getItem(position);
-        holder.folderNameView.setText(folderName == null ? "" : folderName);
+        MediaAlbum album = getItem(position);
+        holder.folderNameView.setText(album == null || album.name == null ? "" : album.name);
 
-        if (folderName == null || !imageFolders.containsKey(folderName)) {
+        if (album == null || album.count == 0 || album.coverPath == null) {
+            ThumbnailLoader.getInstance().cancel(holder.thumbnailView);
             holder.imageCountView.setText("0 张图片");
             holder.thumbnailView.setImageResource(R.drawable.camera_logo);
             return convertView;
         }
 
-        List<String> folderImages = imageFolders.get(folderName);
-        int count = folderImages == null ? 0 : folderImages.size();
-        holder.imageCountView.setText(count + " 张图片");
-
-        if (folderImages == null || folderImages.isEmpty()) {
-            holder.thumbnailView.setImageResource(R.drawable.camera_logo);
-            return convertView;
-        }
-
-        String thumbnailPath = folderImages.get(0);
-        if (thumbnailCache.containsKey(thumbnailPath)) {
-            holder.thumbnailView.setImageBitmap(thumbnailCache.get(thumbnailPath));
-        } else {
-            Bitmap thumbnail = loadThumbnail(thumbnailPath);
-            if (thumbnail != null) {
-                thumbnailCache.put(thumbnailPath, thumbnail);
-                holder.thumbnailView.setImageBitmap(thumbnail);
-            } else {
-                holder.thumbnailView.setImageResource(R.drawable.camera_logo);
-            }
-        }
+        holder.imageCountView.setText(album.count + " 张图片");
+        // 加载完成前先显示默认图标，内存缓存命中时会直接替换
+        holder.thumbnailView.setImageResource(R.drawable.camera_logo);
+        ThumbnailLoader.getInstance().load(holder.thumbnailView, album.coverPath, album.coverId, THUMBNAIL_SIZE);
 
         return convertView;
     }
@@ -115,44 +92,4 @@ public class AlbumAdapter extends ArrayAdapter<String> {
         TextView folderNameView;
         TextView imageCountView;
     }
-
-    private Bitmap loadThumbnail(String imagePath) {
-        try {
-            // 计算缩略图的尺寸
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inJustDecodeBounds = true;
-            BitmapFactory.decodeFile(imagePath, options);
-
-            // 计算缩放比例
-            int scale = 1;
-            if (options.outHeight > THUMBNAIL_SIZE || options.outWidth > THUMBNAIL_SIZE) {
-                int halfHeight = options.outHeight / 2;
-                int halfWidth = options.outWidth / 2;
-                while ((halfHeight / scale) >= THUMBNAIL_SIZE && (halfWidth / scale) >= THUMBNAIL_SIZE) {
-                    scale *= 2;
-                }
-            }
-
-            // 加载缩放后的图片
-            options.inSampleSize = scale;
-            options.inJustDecodeBounds = false;
-            Bitmap bitmap = BitmapFactory.decodeFile(imagePath, options);
-            return cropToSquare(bitmap);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
-    private Bitmap cropToSquare(Bitmap bitmap) {
-        if (bitmap == null) {
-            return null;
-        }
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int size = Math.min(width, height);
-        int x = (width - size) / 2;
-        int y = (height - size) / 2;
-        return Bitmap.createBitmap(bitmap, x, y, size, size);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,292 @@
+package com.tiktok.ic.camera.Adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.tiktok.ic.camera.R;
+import com.tiktok.ic.camera.media.MediaIndex;
+import com.tiktok.ic.camera.thumbnail.GridPrefetcher;
+import com.tiktok.ic.camera.thumbnail.ThumbnailLoader;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 图片网格适配器的基类
+ * 持有图片索引的只读快照（{@link MediaIndex#snapshot}，与索引共用数据，不复制），
+ * 同一个列表的新版本通过 {@link #submitImages} 在后台线程用DiffUtil与当前列表比较，
+ * 回到主线程后只通知插入、删除、移动和路径变化的位置；分页追加通过 {@link #appendImages} 直接通知追加的范围，不做比较。
+ * 以图片在MediaStore中的ID作为稳定ID，加载缩略图时也一并传入，获取系统缩略图时不需要按路径查询。
+ *
+ * 所有图片网格使用同一种单元格，回收池通过 {@link #createViewPool} 创建，由所在的Activity持有并在关闭时清空，
+ * 不在界面之间共享：单元格用RecyclerView所在的Context创建，背景等主题属性按Activity的主题（包括夜间模式）解析。
+ * 点击事件在创建单元格时只设置一次，点击时按单元格当前绑定的适配器和位置分发
+ */
+public abstract class ImageGridAdapter extends RecyclerView.Adapter<ImageGridAdapter.ImageViewHolder>
+        implements GridPrefetcher.ImageSource {
+
+    public static final int THUMBNAIL_SIZE = 300;
+    // 回收池中每种单元格保留的数量，约为三列网格两屏的单元格
+    private static final int MAX_POOLED_VIEWS = 36;
+
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "image-grid-diff"));
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private MediaIndex images;
+    // 正在后台比较的新列表，比较完成前列表再次变化时以它为准重新比较
+    private MediaIndex pendingImages;
+    // 每次修改列表时递增，丢弃过期的比较结果
+    private int generation;
+
+    private OnPreviewButtonClickListener previewButtonClickListener;
+    private OnItemClickListener itemClickListener;
+
+    public interface OnPreviewButtonClickListener {
+        void onPreviewButtonClick(String imagePath, ImageView imageView);
+    }
+
+    public interface OnItemClickListener {
+        void onItemClick(String imagePath);
+    }
+
+    protected ImageGridAdapter(MediaIndex images) {
+        this.images = images != null ? images : new MediaIndex();
+        setHasStableIds(true);
+    }
+
+    /**
+     * 创建图片网格的回收池，同一个Activity中的图片网格可以共用
+     */
+    public static RecyclerView.RecycledViewPool createViewPool() {
+        RecyclerView.RecycledViewPool viewPool = new RecyclerView.RecycledViewPool();
+        viewPool.setMaxRecycledViews(R.layout.grid_item_image, MAX_POOLED_VIEWS);
+        return viewPool;
+    }
+
+    public void setOnPreviewButtonClickListener(OnPreviewButtonClickListener listener) {
+        this.previewButtonClickListener = listener;
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        this.itemClickListener = listener;
+    }
+
+    /**
+     * 换成另一个列表（例如从所有图片切换到某个相册），两个列表之间不做比较
+     */
+    public void setImages(MediaIndex images) {
+        generation++;
+        pendingImages = null;
+        this.images = images != null ? images : new MediaIndex();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 设置同一个列表的新版本，在后台比较后只通知变化的位置。
+     * 比较的耗时与列表长度和变化的数量的乘积成正比，适合媒体库的增量变化
+     */
+    public void submitImages(MediaIndex images) {
+        MediaIndex newImages = images != null ? images : new MediaIndex();
+        MediaIndex oldImages = this.images;
+        int requestGeneration = ++generation;
+        if (oldImages.isEmpty() || newImages.isEmpty()) {
+            pendingImages = null;
+            this.images = newImages;
+            if (!oldImages.isEmpty()) {
+                notifyItemRangeRemoved(0, oldImages.size());
+            }
+            if (!newImages.isEmpty()) {
+                notifyItemRangeInserted(0, newImages.size());
+            }
+            return;
+        }
+
+        pendingImages = newImages;
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new IndexDiffCallback(oldImages, newImages), false);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                pendingImages = null;
+                this.images = newImages;
+                result.dispatchUpdatesTo(this);
+            });
+        });
+    }
+
+    /**
+     * 设置在当前列表末尾追加了图片的新版本，直接通知追加的范围
+     */
+    public void appendImages(MediaIndex images) {
+        int oldSize = this.images.size();
+        // 后台比较尚未完成时当前列表不是新列表的前缀，按普通变化处理
+        if (pendingImages != null || images == null || images.size() < oldSize) {
+            submitImages(images);
+            return;
+        }
+        generation++;
+        this.images = images;
+        if (images.size() > oldSize) {
+            notifyItemRangeInserted(oldSize, images.size() - oldSize);
+        }
+    }
+
+    @Override
+    public String getImagePath(int position) {
+        if (position < 0 || position >= images.size()) {
+            return null;
+        }
+        return images.getPath(position);
+    }
+
+    @Override
+    public long getMediaId(int position) {
+        return images.getId(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return images.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return images.getId(position);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.grid_item_image;
+    }
+
+    @NonNull
+    @Override
+    public ImageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.grid_item_image, parent, false);
+        return new ImageViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ImageViewHolder holder, int position) {
+        String imagePath = images.getPath(position);
+        holder.imageView.setImageDrawable(null);
+        holder.imageView.setTag(imagePath);
+        // 为每个ImageView设置唯一的transitionName，用于共享元素过渡动画
+        holder.imageView.setTransitionName("image_" + imagePath.hashCode());
+        // 单元格可能来自同一回收池中的另一个网格，选中状态每次都重新设置
+        bindSelection(holder, imagePath);
+        ThumbnailLoader.getInstance().load(holder.imageView, imagePath, images.getId(position), THUMBNAIL_SIZE);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ImageViewHolder holder) {
+        // 放入回收池的单元格不再引用缩略图，缩略图可以被缓存淘汰和复用
+        ThumbnailLoader.getInstance().cancel(holder.imageView);
+        holder.imageView.setImageDrawable(null);
+    }
+
+    /**
+     * 图片是否被选中，默认不支持选择
+     */
+    protected boolean isSelected(String imagePath) {
+        return false;
+    }
+
+    protected void bindSelection(ImageViewHolder holder, String imagePath) {
+        holder.itemView.setBackgroundResource(isSelected(imagePath)
+                ? R.drawable.bg_image_tile_selected : R.drawable.bg_image_tile);
+    }
+
+    private void dispatchItemClick(int position) {
+        String imagePath = getImagePath(position);
+        if (itemClickListener != null && imagePath != null) {
+            itemClickListener.onItemClick(imagePath);
+        }
+    }
+
+    private void dispatchPreviewClick(int position, ImageViewHolder holder) {
+        String imagePath = getImagePath(position);
+        if (previewButtonClickListener != null && imagePath != null) {
+            previewButtonClickListener.onPreviewButtonClick(imagePath, holder.imageView);
+        }
+    }
+
+    /**
+     * 图片单元格，所有图片网格共用
+     */
+    public static class ImageViewHolder extends RecyclerView.ViewHolder {
+        final ImageView imageView;
+        final ImageButton previewButton;
+
+        ImageViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imageView = itemView.findViewById(R.id.grid_item_image_view);
+            previewButton = itemView.findViewById(R.id.preview_button);
+
+            itemView.setOnClickListener(v -> {
+                ImageGridAdapter adapter = getImageGridAdapter();
+                if (adapter != null) {
+                    adapter.dispatchItemClick(getBindingAdapterPosition());
+                }
+            });
+            if (previewButton != null) {
+                previewButton.setOnClickListener(v -> {
+                    ImageGridAdapter adapter = getImageGridAdapter();
+                    if (adapter != null) {
+                        adapter.dispatchPreviewClick(getBindingAdapterPosition(), this);
+                    }
+                });
+            }
+        }
+
+        private ImageGridAdapter getImageGridAdapter() {
+            RecyclerView.Adapter<?> adapter = getBindingAdapter();
+            return adapter instanceof ImageGridAdapter ? (ImageGridAdapter) adapter : null;
+        }
+    }
+
+    /**
+     * 按ID比较两个列表，ID相同即为同一张图片；路径变化（图片被移动或重命名）时重新绑定
+     */
+    private static class IndexDiffCallback extends DiffUtil.Callback {
+        private final MediaIndex oldImages;
+        private final MediaIndex newImages;
+
+        IndexDiffCallback(MediaIndex oldImages, MediaIndex newImages) {
+            this.oldImages = oldImages;
+            this.newImages = newImages;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldImages.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newImages.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldImages.getId(oldItemPosition) == newImages.getId(newItemPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldImages.getPath(oldItemPosition).equals(newImages.getPath(newItemPosition));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.tiktok.ic.camera;
 
 import android.app.Application;
 
+import com.tiktok.ic.camera.thumbnail.ThumbnailLoader;
 import com.tiktok.ic.camera.utils.ThemeUtils;
 
 /**
@@ -13,5 +14,19 @@ public class ICCameraApplication extends Application {
         super.onCreate();
         // 初始化主题模式
         ThemeUtils.initTheme(this);
+        // 初始化缩略图加载器
+        ThumbnailLoader.init(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ThumbnailLoader.getInstance().onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        ThumbnailLoader.getInstance().onTrimMemory(TRIM_MEMORY_COMPLETE);
     }
 }
@@ -3,16 +3,10 @@ package com.tiktok.ic.camera.activity;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
-import android.net.Uri;
 import android.content.res.Configuration;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.provider.MediaStore;
 import android.view.View;
 import android.widget.Button;
-import android.widget.GridView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -22,10 +16,17 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.tiktok.ic.camera.Adapter.ImageGridAdapter;
 import com.tiktok.ic.camera.Adapter.MultiSelectImageAdapter;
 import com.tiktok.ic.camera.R;
+import com.tiktok.ic.camera.media.MediaIndex;
+import com.tiktok.ic.camera.media.MediaIndexLoader;
+import com.tiktok.ic.camera.media.MediaItem;
 import com.tiktok.ic.camera.utils.PermissionUtils;
+import com.tiktok.ic.camera.widget.GridSpacingItemDecoration;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -40,17 +41,22 @@ public class ImageCollageSelectorActivity extends BaseActivity {
 
     private static final int MAX_SELECTION = 4;
     private static final int REQUEST_STORAGE_PERMISSION = 300;
+    private static final int GRID_COLUMNS = 3;
+    private static final float GRID_SPACING_DP = 12;
 
-    private GridView imageGridView;
+    private RecyclerView imageGridView;
+    private RecyclerView.RecycledViewPool viewPool;
     private TextView selectedCountText;
     private Button backButton;
     private Button confirmButton;
     private TextView emptyStateTextView;
 
     private MultiSelectImageAdapter imageAdapter;
-    private List<String> allImagePaths;
+    // 图片数据与界面无关，旋转屏幕重建界面时保留
+    private final MediaIndex mediaIndex = new MediaIndex();
     private Set<String> selectedPaths = new HashSet<>();
     private ActivityResultLauncher<Intent> previewLauncher;
+    private MediaIndexLoader indexLoader;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -87,8 +93,7 @@ public class ImageCollageSelectorActivity extends BaseActivity {
         confirmButton = findViewById(R.id.confirm_button);
         emptyStateTextView = findViewById(R.id.empty_state_text_view);
 
-        allImagePaths = new ArrayList<>();
-        imageAdapter = new MultiSelectImageAdapter(this, allImagePaths);
+        imageAdapter = new MultiSelectImageAdapter(mediaIndex.snapshot());
         imageAdapter.setSelectedPaths(selectedPaths);
         // 设置item点击监听：直接点击图片时切换选中状态
         imageAdapter.setOnItemClickListener(imagePath -> {
@@ -132,6 +137,15 @@ public class ImageCollageSelectorActivity extends BaseActivity {
             );
             previewLauncher.launch(previewIntent, options);
         });
+        GridLayoutManager layoutManager = new GridLayoutManager(this, GRID_COLUMNS);
+        // 滑动时利用空闲的帧提前创建和绑定即将出现的单元格
+        layoutManager.setItemPrefetchEnabled(true);
+        imageGridView.setLayoutManager(layoutManager);
+        imageGridView.setHasFixedSize(true);
+        viewPool = ImageGridAdapter.createViewPool();
+        imageGridView.setRecycledViewPool(viewPool);
+        imageGridView.addItemDecoration(new GridSpacingItemDecoration(
+                (int) (GRID_SPACING_DP * getResources().getDisplayMetrics().density)));
         imageGridView.setAdapter(imageAdapter);
 
         updateSelectedCount();
@@ -194,44 +208,51 @@ public class ImageCollageSelectorActivity extends BaseActivity {
 
 
     private void loadImages() {
-        new Thread(() -> {
-            loadImagesFromMediaStore();
-            
-            new Handler(Looper.getMainLooper()).post(() -> {
-                if (allImagePaths.isEmpty()) {
+        // 重新加载时停止上一次尚未完成的加载
+        if (indexLoader != null) {
+            indexLoader.cancel();
+        }
+
+        // 先显示本地保存的索引，再在后台与MediaStore核对
+        indexLoader = new MediaIndexLoader(this, mediaIndex, new MediaIndexLoader.Listener() {
+            @Override
+            public void onIndexLoaded() {
+                updateUI();
+            }
+
+            @Override
+            public void onItemsAppended(List<MediaItem> items) {
+                // 追加的一页只通知新增的范围
+                imageAdapter.appendImages(mediaIndex.snapshot());
+            }
+
+            @Override
+            public void onIndexChanged(List<MediaItem> removed) {
+                // 已删除的图片同时取消选择
+                for (MediaItem item : removed) {
+                    selectedPaths.remove(item.path);
+                }
+                updateSelectedCount();
+                if (mediaIndex.isEmpty()) {
                     showEmptyState();
                 } else {
                     updateUI();
                 }
-            });
-        }).start();
-    }
-
-    private void loadImagesFromMediaStore() {
-        Uri uri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-        String[] projection = {
-                MediaStore.Images.Media.DATA
-        };
-        String sortOrder = MediaStore.Images.Media.DATE_ADDED + " DESC";
-
-        try (Cursor cursor = getContentResolver().query(uri, projection, null, null, sortOrder)) {
-            allImagePaths.clear();
-
-            if (cursor != null) {
-                int dataColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
+            }
 
-                while (cursor.moveToNext()) {
-                    String path = cursor.getString(dataColumnIndex);
-                    allImagePaths.add(path);
+            @Override
+            public void onLoadFinished() {
+                if (mediaIndex.isEmpty()) {
+                    showEmptyState();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        });
+        indexLoader.start();
     }
 
     private void updateUI() {
-        imageAdapter.setImages(allImagePaths);
+        // 与当前显示的列表比较，只更新变化的单元格
+        imageAdapter.submitImages(mediaIndex.snapshot());
         imageAdapter.setSelectedPaths(selectedPaths);
         emptyStateTextView.setVisibility(View.GONE);
         imageGridView.setVisibility(View.VISIBLE);
@@ -250,13 +271,29 @@ public class ImageCollageSelectorActivity extends BaseActivity {
         initViews();
         initActivityResultLaunchers();
         setupListeners();
-        if (!allImagePaths.isEmpty()) {
+        // 数据在Activity中保留，重建界面后直接显示，不重新扫描媒体库
+        if (!mediaIndex.isEmpty()) {
             updateUI();
         } else if (PermissionUtils.hasPermission(this, PermissionUtils.PermissionType.STORAGE)) {
             loadImages();
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 解除适配器时单元格被回收并释放缩略图，之后清空回收池
+        if (imageGridView != null) {
+            imageGridView.setAdapter(null);
+        }
+        if (viewPool != null) {
+            viewPool.clear();
+        }
+        if (indexLoader != null) {
+            indexLoader.cancel();
+        }
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
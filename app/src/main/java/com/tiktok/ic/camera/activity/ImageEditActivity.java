@@ -26,12 +26,22 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.core.content.ContextCompat;
 
+import com.tiktok.ic.camera.edit.ColorOperation;
+import com.tiktok.ic.camera.edit.EditExporter;
+import com.tiktok.ic.camera.edit.EditGraph;
+import com.tiktok.ic.camera.edit.EditHistory;
+import com.tiktok.ic.camera.edit.EditOperation;
+import com.tiktok.ic.camera.edit.GeometryOperation;
+import com.tiktok.ic.camera.edit.StickerOperation;
+import com.tiktok.ic.camera.edit.TextOperation;
+import com.tiktok.ic.camera.utils.ColorPipeline;
 import com.tiktok.ic.camera.utils.FilterUtils;
 import com.tiktok.ic.camera.R;
 import com.tiktok.ic.camera.utils.StickerUtils;
 import com.tiktok.ic.camera.utils.ImageCoordinateUtils;
 import com.tiktok.ic.camera.utils.ImageProcessUtils;
 import com.tiktok.ic.camera.utils.ImageSaveUtils;
+import com.tiktok.ic.camera.utils.PreviewScheduler;
 import com.tiktok.ic.camera.utils.TextDrawUtils;
 import com.tiktok.ic.camera.utils.StickerDrawUtils;
 import com.tiktok.ic.camera.widget.CropOverlayView;
@@ -39,12 +49,9 @@ import com.tiktok.ic.camera.widget.EditableTextView;
 import com.tiktok.ic.camera.widget.StickerView;
 import com.tiktok.ic.camera.widget.ZoomableImageView;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.content.res.Configuration;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.IOException;
 
 /**
  * 图片编辑Activity
@@ -62,6 +69,10 @@ public class ImageEditActivity extends BaseActivity {
     // 保存按钮
     private Button btnSave;
     
+    // 撤销/重做按钮
+    private Button btnUndo;
+    private Button btnRedo;
+    
     // 二级功能栏
     private LinearLayout secondaryToolbar;
     private Button btnCrop;
@@ -78,11 +89,12 @@ public class ImageEditActivity extends BaseActivity {
     private LinearLayout optionsContainer;
     
     // 图片相关
-    private Bitmap originalBitmap; // 原始图片
-    private Bitmap baseBitmap; // 基础图片
+    private EditGraph editGraph; // 原图和已确认的编辑操作，编辑结果按需计算
+    private EditHistory editHistory; // 撤销/重做记录，只保存操作记录
+    private Bitmap baseBitmap; // 基础图片（editGraph的计算结果，由editGraph持有）
     private Bitmap currentBitmap; // 当前显示的图片
-    private Bitmap rotateModeBaseBitmap; // 进入旋转模式前保存的baseBitmap状态
-    private Bitmap cropModeBaseBitmap; // 进入裁剪模式前保存的baseBitmap状态
+    private Bitmap previewProxyBitmap; // 按视图尺寸缩小的baseBitmap副本，用于调节和滤镜的实时预览，在渲染线程上回收
+    private Bitmap previewProxySource; // 生成previewProxyBitmap时对应的baseBitmap
     private String imagePath;
     
     // 当前状态
@@ -108,10 +120,20 @@ public class ImageEditActivity extends BaseActivity {
     
     private ActivityResultLauncher<String> requestPermissionLauncher;
     
-    // 滤镜处理相关
-    private ExecutorService filterExecutor = Executors.newSingleThreadExecutor();
-    private Handler mainHandler = new Handler(Looper.getMainLooper());
-    private FilterUtils.FilterType pendingFilter = null; // 待处理的滤镜
+    // 颜色调整预览：后台渲染低分辨率代理图，只保留最新的滤镜/亮度/对比度请求，按帧发布结果
+    private final PreviewScheduler<ColorPreviewRequest> colorPreviewScheduler = new PreviewScheduler<>(
+        request -> request.pipeline.apply(request.proxy),
+        new PreviewScheduler.Listener<ColorPreviewRequest>() {
+            @Override
+            public void onFrameReady(ColorPreviewRequest request, Bitmap frame) {
+                onColorPreviewReady(request, frame);
+            }
+            
+            @Override
+            public void onFrameDropped(ColorPreviewRequest request, Bitmap frame) {
+                recycleIfUnused(frame);
+            }
+        });
     
     private enum EditMode {
         NONE, CROP, ROTATE, TEXT, ADJUST, FILTER, STICKER
@@ -175,37 +197,21 @@ public class ImageEditActivity extends BaseActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (filterExecutor != null && !filterExecutor.isShutdown()) {
-            filterExecutor.shutdown();
-        }
+        // 代理图在渲染线程上回收，需要在停止调度器之前提交
+        releasePreviewProxy();
+        colorPreviewScheduler.shutdown();
 
         if (imageView != null) {
             imageView.setImageBitmap(null);
         }
         
         //清理所有Bitmap引用，释放内存
-        if (originalBitmap != null && !originalBitmap.isRecycled()) {
-            originalBitmap.recycle();
-            originalBitmap = null;
-        }
-        if (baseBitmap != null && baseBitmap != originalBitmap && !baseBitmap.isRecycled()) {
-            baseBitmap.recycle();
-            baseBitmap = null;
-        }
-        if (currentBitmap != null && currentBitmap != originalBitmap && 
-            currentBitmap != baseBitmap && !currentBitmap.isRecycled()) {
-            currentBitmap.recycle();
-            currentBitmap = null;
-        }
-        if (rotateModeBaseBitmap != null && rotateModeBaseBitmap != originalBitmap && 
-            rotateModeBaseBitmap != baseBitmap && !rotateModeBaseBitmap.isRecycled()) {
-            rotateModeBaseBitmap.recycle();
-            rotateModeBaseBitmap = null;
-        }
-        if (cropModeBaseBitmap != null && cropModeBaseBitmap != originalBitmap && 
-            cropModeBaseBitmap != baseBitmap && !cropModeBaseBitmap.isRecycled()) {
-            cropModeBaseBitmap.recycle();
-            cropModeBaseBitmap = null;
+        recycleIfUnused(currentBitmap);
+        currentBitmap = null;
+        baseBitmap = null;
+        if (editGraph != null) {
+            editGraph.release();
+            editGraph = null;
         }
     }
     
@@ -217,6 +223,8 @@ public class ImageEditActivity extends BaseActivity {
         cropOverlay = findViewById(R.id.crop_overlay);
         
         btnSave = findViewById(R.id.btn_save);
+        btnUndo = findViewById(R.id.btn_undo);
+        btnRedo = findViewById(R.id.btn_redo);
         
         secondaryToolbar = findViewById(R.id.secondary_toolbar);
         btnCrop = findViewById(R.id.btn_crop);
@@ -262,7 +270,7 @@ public class ImageEditActivity extends BaseActivity {
 
             options.inScaled = false;
             
-            originalBitmap = BitmapFactory.decodeFile(imagePath, options);
+            Bitmap originalBitmap = BitmapFactory.decodeFile(imagePath, options);
             
             if (originalBitmap != null) {
                 int maxDimension = 1200;
@@ -280,7 +288,10 @@ public class ImageEditActivity extends BaseActivity {
                     }
                 }
 
-                baseBitmap = originalBitmap.copy(Bitmap.Config.RGB_565, true);
+                // 编辑操作都不修改输入图片，原图直接交给editGraph，不再复制一份
+                editGraph = new EditGraph(originalBitmap);
+                editHistory = new EditHistory(editGraph);
+                baseBitmap = editGraph.render();
                 currentBitmap = baseBitmap; // 直接引用，不创建新副本
                 imageView.setImageBitmap(currentBitmap);
             } else {
@@ -304,6 +315,11 @@ public class ImageEditActivity extends BaseActivity {
             }
         });
 
+        // 撤销/重做
+        btnUndo.setOnClickListener(v -> undoEdit());
+        btnRedo.setOnClickListener(v -> redoEdit());
+        updateHistoryButtons();
+
         showSecondaryToolbar();
         
         // 裁剪
@@ -330,95 +346,16 @@ public class ImageEditActivity extends BaseActivity {
                 clearAllTextViews();
             } else if (currentMode == EditMode.FILTER) {
                 currentFilter = FilterUtils.FilterType.ORIGINAL;
-                if (baseBitmap != null) {
-                    // 如果不需要亮度对比度调整，直接使用baseBitmap引用
-                    if (currentBrightness != 0 || currentContrast != 0) {
-                        if (currentBitmap != null && currentBitmap != baseBitmap && 
-                            currentBitmap != originalBitmap) {
-                            currentBitmap.recycle();
-                        }
-                        currentBitmap = baseBitmap.copy(Bitmap.Config.RGB_565, true);
-                        applyBrightnessContrast();
-                    } else {
-                        // 直接使用baseBitmap，不创建副本
-                        if (currentBitmap != null && currentBitmap != baseBitmap && 
-                            currentBitmap != originalBitmap) {
-                            currentBitmap.recycle();
-                        }
-                        currentBitmap = baseBitmap;
-                        imageView.setImageBitmap(currentBitmap);
-                        imageView.resetTransform();
-                    }
-                }
+                applyColorAdjustments();
             } else if (currentMode == EditMode.ADJUST) {
-                if (baseBitmap != null) {
-                    if (currentBitmap != null && currentBitmap != baseBitmap && 
-                        currentBitmap != originalBitmap) {
-                        currentBitmap.recycle();
-                    }
-                    currentBitmap = baseBitmap;
-                    currentBrightness = 0;
-                    currentContrast = 0;
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
-                }
-            } else if (currentMode == EditMode.CROP) {
-                if (cropModeBaseBitmap != null) {
-                    if (baseBitmap != null && baseBitmap != originalBitmap && 
-                        baseBitmap != cropModeBaseBitmap) {
-                        baseBitmap.recycle();
-                    }
-                    Bitmap oldCurrentBitmap = currentBitmap;
-                    baseBitmap = cropModeBaseBitmap.copy(Bitmap.Config.RGB_565, true);
-                    
-                    if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                        currentBrightness == 0 && currentContrast == 0) {
-                        currentBitmap = baseBitmap;
-                    } else {
-                        currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-                    }
-                    
-                    if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                        oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                        oldCurrentBitmap.recycle();
-                    }
-                    
-                    if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                        applyFilter();
-                    } else {
-                        applyBrightnessContrast();
-                    }
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
-                }
-            } else if (currentMode == EditMode.ROTATE) {
-                if (rotateModeBaseBitmap != null) {
-                    if (baseBitmap != null && baseBitmap != originalBitmap && 
-                        baseBitmap != rotateModeBaseBitmap) {
-                        baseBitmap.recycle();
-                    }
-                    Bitmap oldCurrentBitmap = currentBitmap;
-                    baseBitmap = rotateModeBaseBitmap.copy(Bitmap.Config.RGB_565, true);
-                    
-                    if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                        currentBrightness == 0 && currentContrast == 0) {
-                        currentBitmap = baseBitmap;
-                    } else {
-                        currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-                    }
-                    
-                    if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                        oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                        oldCurrentBitmap.recycle();
-                    }
-                    
-                    if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                        applyFilter();
-                    } else {
-                        applyBrightnessContrast();
-                    }
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
+                currentBrightness = 0;
+                currentContrast = 0;
+                applyColorAdjustments();
+            } else if (currentMode == EditMode.CROP || currentMode == EditMode.ROTATE) {
+                // 撤销本次模式中的几何操作，之前的结果仍在editGraph的缓存中
+                if (editGraph != null) {
+                    editHistory.discardUncommitted();
+                    refreshBaseBitmap();
                 }
             } else if (currentMode == EditMode.STICKER) {
                 clearAllStickers();
@@ -431,6 +368,7 @@ public class ImageEditActivity extends BaseActivity {
         // 确认
         btnConfirm.setOnClickListener(v -> {
             applyCurrentEdit();
+            commitModeOperations();
             exitEditMode();
         });
     }
@@ -447,44 +385,21 @@ public class ImageEditActivity extends BaseActivity {
             clearAllStickers();
         }
         if (currentMode == EditMode.ADJUST && mode != EditMode.ADJUST) {
-            if (baseBitmap != null) {
-                if (currentBitmap != null && currentBitmap != baseBitmap && 
-                    currentBitmap != originalBitmap) {
-                    currentBitmap.recycle();
-                }
-                currentBitmap = baseBitmap;
-                currentBrightness = 0;
-                currentContrast = 0;
-                imageView.setImageBitmap(currentBitmap);
-                imageView.resetTransform();
-            }
+            currentBrightness = 0;
+            currentContrast = 0;
+            applyColorAdjustments();
         }
         if (currentMode == EditMode.FILTER && mode != EditMode.FILTER) {
-            if (baseBitmap != null) {
-                currentFilter = FilterUtils.FilterType.ORIGINAL;
-                if (currentBrightness != 0 || currentContrast != 0) {
-                    if (currentBitmap != null && currentBitmap != baseBitmap && 
-                        currentBitmap != originalBitmap) {
-                        currentBitmap.recycle();
-                    }
-                    currentBitmap = baseBitmap.copy(Bitmap.Config.RGB_565, true);
-                    applyBrightnessContrast();
-                } else {
-                    if (currentBitmap != null && currentBitmap != baseBitmap && 
-                        currentBitmap != originalBitmap) {
-                        currentBitmap.recycle();
-                    }
-                    currentBitmap = baseBitmap;
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
-                }
-            }
+            currentFilter = FilterUtils.FilterType.ORIGINAL;
+            applyColorAdjustments();
         }
         
-        clearSavedModeBitmaps();
+        // 直接切换模式时，上一个模式中已追加的操作（如旋转）作为一步记录
+        commitModeOperations();
         
         currentMode = mode;
         updateSecondaryToolbarSelection();
+        updateHistoryButtons();
         showOptionsForMode(mode);
         
         // 在调节模式和滤镜模式下禁用图片触摸，让滑动条和按钮能正常工作
@@ -499,19 +414,10 @@ public class ImageEditActivity extends BaseActivity {
             cropOverlay.setVisibility(View.VISIBLE);
             updateCropOverlayImageInfo();
             cropOverlay.setCropRatio(cropRatio);
-            if (baseBitmap != null) {
-                cropModeBaseBitmap = baseBitmap.copy(Bitmap.Config.RGB_565, true);
-            }
         } else {
             cropOverlay.setVisibility(View.GONE);
         }
         
-        if (mode == EditMode.ROTATE) {
-            if (baseBitmap != null) {
-                rotateModeBaseBitmap = baseBitmap.copy(Bitmap.Config.RGB_565, true);
-            }
-        }
-        
         // 文字模式下，允许在容器上添加文字
         if (mode == EditMode.TEXT) {
             imageView.setTouchEnabled(false);
@@ -531,20 +437,52 @@ public class ImageEditActivity extends BaseActivity {
         // 不再隐藏工具栏，只隐藏选项面板和裁剪覆盖层
         optionsPanel.setVisibility(View.GONE);
         cropOverlay.setVisibility(View.GONE);
-        clearSavedModeBitmaps();
+        releasePreviewProxy();
+        updateHistoryButtons();
     }
     
-    private void clearSavedModeBitmaps() {
-        if (rotateModeBaseBitmap != null && rotateModeBaseBitmap != originalBitmap && 
-            rotateModeBaseBitmap != baseBitmap && !rotateModeBaseBitmap.isRecycled()) {
-            rotateModeBaseBitmap.recycle();
-            rotateModeBaseBitmap = null;
+    /**
+     * 将本次编辑模式中对editGraph的修改记录为一步历史
+     */
+    private void commitModeOperations() {
+        if (editHistory == null) return;
+        
+        editHistory.commit();
+    }
+    
+    /**
+     * 撤销上一步编辑，只在未进入编辑模式时可用
+     */
+    private void undoEdit() {
+        if (currentMode != EditMode.NONE || editHistory == null) return;
+        
+        if (editHistory.undo()) {
+            refreshBaseBitmap();
         }
-        if (cropModeBaseBitmap != null && cropModeBaseBitmap != originalBitmap && 
-            cropModeBaseBitmap != baseBitmap && !cropModeBaseBitmap.isRecycled()) {
-            cropModeBaseBitmap.recycle();
-            cropModeBaseBitmap = null;
+        updateHistoryButtons();
+    }
+    
+    /**
+     * 重做上一次撤销的编辑
+     */
+    private void redoEdit() {
+        if (currentMode != EditMode.NONE || editHistory == null) return;
+        
+        if (editHistory.redo()) {
+            refreshBaseBitmap();
         }
+        updateHistoryButtons();
+    }
+    
+    private void updateHistoryButtons() {
+        boolean idle = currentMode == EditMode.NONE && editHistory != null;
+        setHistoryButtonEnabled(btnUndo, idle && editHistory.canUndo());
+        setHistoryButtonEnabled(btnRedo, idle && editHistory.canRedo());
+    }
+    
+    private void setHistoryButtonEnabled(Button button, boolean enabled) {
+        button.setEnabled(enabled);
+        button.setAlpha(enabled ? 1.0f : 0.4f);
     }
     
     /**
@@ -579,26 +517,17 @@ public class ImageEditActivity extends BaseActivity {
     }
     
     private void restoreToOriginal() {
-        if (originalBitmap != null) {
-            // 释放旧的baseBitmap和currentBitmap
-            if (baseBitmap != null && baseBitmap != originalBitmap) {
-                baseBitmap.recycle();
-            }
-            if (currentBitmap != null && currentBitmap != originalBitmap && 
-                currentBitmap != baseBitmap) {
-                currentBitmap.recycle();
-            }
-            
-            baseBitmap = originalBitmap.copy(Bitmap.Config.RGB_565, true);
-            currentBitmap = baseBitmap;
+        if (editGraph != null) {
+            // 清空所有操作，editGraph直接返回原图；清空本身记录为一步，可以撤销
+            editGraph.clear();
+            editHistory.commit();
 
             currentBrightness = 0;
             currentContrast = 0;
             cropRatio = 0;
             currentFilter = FilterUtils.FilterType.ORIGINAL;
 
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
+            refreshBaseBitmap();
 
             if (currentMode == EditMode.ADJUST) {
                 showOptionsForMode(EditMode.ADJUST);
@@ -1259,7 +1188,7 @@ public class ImageEditActivity extends BaseActivity {
                 if (fromUser) {
                     currentBrightness = progress - 100;
                     brightnessValue.setText(String.valueOf((int)currentBrightness));
-                    applyBrightnessContrast();
+                    applyColorAdjustments();
                 }
             }
             
@@ -1344,7 +1273,7 @@ public class ImageEditActivity extends BaseActivity {
                         currentContrast = ((progress - 100) / 100.0f) * 150;
                     }
                     contrastValue.setText(String.valueOf((int)currentContrast));
-                    applyBrightnessContrast();
+                    applyColorAdjustments();
                 }
             }
             
@@ -1512,40 +1441,14 @@ public class ImageEditActivity extends BaseActivity {
             imageViewHeight = editContainer.getHeight();
         }
         
-        Bitmap stickerBitmap = StickerDrawUtils.drawStickersOnBitmap(
-            baseBitmap, stickerViews, imageViewWidth, imageViewHeight);
-        // 释放旧的baseBitmap和currentBitmap
-        Bitmap oldBaseBitmap = baseBitmap;
-        Bitmap oldCurrentBitmap = currentBitmap;
-        baseBitmap = stickerBitmap;
-        
-        // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-        if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-            currentBrightness == 0 && currentContrast == 0) {
-            currentBitmap = baseBitmap;
-        } else {
-            currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-        }
-        
-        // 释放旧的bitmap
-        if (oldBaseBitmap != null && oldBaseBitmap != originalBitmap && 
-            oldBaseBitmap != baseBitmap) {
-            oldBaseBitmap.recycle();
-        }
-        if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-            oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-            oldCurrentBitmap.recycle();
+        // 记录贴纸相对图片的位置，作为一个操作追加到editGraph
+        java.util.List<StickerDrawUtils.StickerLayer> layers = StickerDrawUtils.captureStickerLayers(
+            stickerViews, baseBitmap.getWidth(), baseBitmap.getHeight(), imageViewWidth, imageViewHeight);
+        if (!layers.isEmpty()) {
+            editGraph.add(new StickerOperation(layers));
+            refreshBaseBitmap();
         }
         
-        // 重新应用滤镜和亮度对比度
-        if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-            applyFilter();
-        } else {
-            applyBrightnessContrast();
-        }
-        imageView.setImageBitmap(currentBitmap);
-        imageView.resetTransform();
-        
         // 清除所有贴纸视图
         clearAllStickers();
     }
@@ -1583,7 +1486,7 @@ public class ImageEditActivity extends BaseActivity {
                 currentFilter = filter;
                 
                 // 应用滤镜
-                applyFilter();
+                applyColorAdjustments();
                 
                 // 更新所有按钮样式
                 for (int i = 0; i < optionsContainer.getChildCount(); i++) {
@@ -1605,100 +1508,20 @@ public class ImageEditActivity extends BaseActivity {
         }
     }
     
-    private void applyFilter() {
-        if (baseBitmap == null) return;
-        
-        // 记录当前要应用的滤镜
-        FilterUtils.FilterType filterToApply = currentFilter;
-        pendingFilter = filterToApply;
-        
-        // 在后台线程处理滤镜
-        filterExecutor.execute(() -> {
-            // 检查是否已被新的滤镜请求覆盖
-            if (pendingFilter != filterToApply) {
-                return;
-            }
-            
-            // 应用滤镜到baseBitmap，生成新的currentBitmap
-            Bitmap filteredBitmap = FilterUtils.applyFilter(baseBitmap, filterToApply);
-            
-            // 检查是否已被新的滤镜请求覆盖
-            if (pendingFilter != filterToApply || filteredBitmap == null) {
-                if (filteredBitmap != null && filteredBitmap != baseBitmap) {
-                    filteredBitmap.recycle();
-                }
-                return;
-            }
-            
-            // 在主线程更新UI
-            final Bitmap finalFilteredBitmap = filteredBitmap;
-            mainHandler.post(() -> {
-                // 再次检查是否已被新的滤镜请求覆盖
-                if (pendingFilter != filterToApply) {
-                    if (finalFilteredBitmap != null && finalFilteredBitmap != baseBitmap) {
-                        finalFilteredBitmap.recycle();
-                    }
-                    return;
-                }
-                
-                // 如果之前有亮度对比度调整，需要重新应用
-                if (currentBrightness != 0 || currentContrast != 0) {
-                    // 先应用滤镜，再应用亮度对比度
-                    // 释放旧的currentBitmap（如果不是baseBitmap或originalBitmap）
-                    Bitmap oldCurrentBitmap = currentBitmap;
-                    currentBitmap = finalFilteredBitmap.copy(Bitmap.Config.RGB_565, true);
-                    
-                    // 释放旧的currentBitmap
-                    if (oldCurrentBitmap != null && oldCurrentBitmap != baseBitmap && 
-                        oldCurrentBitmap != originalBitmap && oldCurrentBitmap != currentBitmap) {
-                        oldCurrentBitmap.recycle();
-                    }
-                    
-                    // 如果finalFilteredBitmap是新创建的（不是baseBitmap），需要释放它
-                    if (finalFilteredBitmap != baseBitmap && finalFilteredBitmap != originalBitmap) {
-                        finalFilteredBitmap.recycle();
-                    }
-                    applyBrightnessContrast();
-                } else {
-                    // 优化：如果不需要亮度对比度，直接使用滤镜结果
-                    // 释放旧的currentBitmap（如果不是baseBitmap或originalBitmap，且不是刚创建的filteredBitmap）
-                    Bitmap oldCurrentBitmap = currentBitmap;
-                    currentBitmap = finalFilteredBitmap;
-                    
-                    if (oldCurrentBitmap != null && oldCurrentBitmap != baseBitmap && 
-                        oldCurrentBitmap != originalBitmap && oldCurrentBitmap != currentBitmap) {
-                        oldCurrentBitmap.recycle();
-                    }
-                    
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
-                    // 强制刷新视图
-                    imageView.invalidate();
-                }
-            });
-        });
-    }
-    
     /**
      * 将滤镜永久应用到baseBitmap
      * 在确认编辑时调用，将滤镜效果合并到基础图片中
      */
     private void applyFilterToBase() {
-        if (baseBitmap == null || currentFilter == FilterUtils.FilterType.ORIGINAL) {
+        if (editGraph == null || currentFilter == FilterUtils.FilterType.ORIGINAL) {
             return;
         }
         
-        // 将滤镜应用到baseBitmap（永久应用）
-        Bitmap filteredBitmap = FilterUtils.applyFilter(baseBitmap, currentFilter);
-        if (filteredBitmap != null && filteredBitmap != baseBitmap) {
-            // 释放旧的baseBitmap（如果不是原始图片）
-            if (baseBitmap != originalBitmap) {
-                baseBitmap.recycle();
-            }
-            baseBitmap = filteredBitmap;
-            // 重置滤镜状态，因为已经应用到baseBitmap了
-            currentFilter = FilterUtils.FilterType.ORIGINAL;
-        }
+        // 将滤镜作为一个操作追加到editGraph
+        editGraph.add(new ColorOperation(currentFilter, 0, 0));
+        // 重置滤镜状态，因为已经应用到baseBitmap了
+        currentFilter = FilterUtils.FilterType.ORIGINAL;
+        refreshBaseBitmap();
     }
     
     private void addOptionButton(String text, View.OnClickListener listener) {
@@ -1754,136 +1577,163 @@ public class ImageEditActivity extends BaseActivity {
     }
     
     private void rotateImage(int angle) {
-        Bitmap rotatedBitmap = ImageProcessUtils.rotateImage(baseBitmap, angle);
-        if (rotatedBitmap != null) {
-            // 释放旧的baseBitmap和currentBitmap（如果不是原始图片）
-            if (baseBitmap != originalBitmap) {
-                baseBitmap.recycle();
-            }
-            Bitmap oldCurrentBitmap = currentBitmap;
-            baseBitmap = rotatedBitmap;
-            
-            // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-            if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                currentBrightness == 0 && currentContrast == 0) {
-                currentBitmap = baseBitmap;
-            } else {
-                currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            }
-            
-            // 释放旧的currentBitmap
-            if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                oldCurrentBitmap.recycle();
-            }
-            
-            // 重新应用滤镜和亮度对比度
-            if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                applyFilter();
-            } else {
-                applyBrightnessContrast();
-            }
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
-            
-            // 更新裁剪覆盖层的图片信息（因为图片尺寸可能已变化）
-            if (currentMode == EditMode.CROP) {
-                updateCropOverlayImageInfo();
-            }
-        }
+        if (editGraph == null) return;
+        
+        // 与之前连续的几何操作合并，从几何操作的输入重新采样一次
+        editGraph.add(GeometryOperation.rotate(angle));
+        refreshBaseBitmap();
     }
     
     private void flipHorizontal() {
-        Bitmap flippedBitmap = ImageProcessUtils.flipHorizontal(baseBitmap);
-        if (flippedBitmap != null) {
-            // 释放旧的baseBitmap（如果不是原始图片）
-            if (baseBitmap != originalBitmap) {
-                baseBitmap.recycle();
-            }
-            Bitmap oldCurrentBitmap = currentBitmap;
-            baseBitmap = flippedBitmap;
-            
-            // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-            if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                currentBrightness == 0 && currentContrast == 0) {
-                currentBitmap = baseBitmap;
-            } else {
-                currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            }
-            
-            // 释放旧的currentBitmap
-            if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                oldCurrentBitmap.recycle();
-            }
-            
-            // 重新应用滤镜和亮度对比度
-            if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                applyFilter();
-            } else {
-                applyBrightnessContrast();
-            }
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
-            
-            // 更新裁剪覆盖层的图片信息
-            if (currentMode == EditMode.CROP) {
-                updateCropOverlayImageInfo();
-            }
-        }
+        if (editGraph == null) return;
+        
+        // 与之前连续的几何操作合并，从几何操作的输入重新采样一次
+        editGraph.add(GeometryOperation.flipHorizontal());
+        refreshBaseBitmap();
     }
     
     private void flipVertical() {
-        Bitmap flippedBitmap = ImageProcessUtils.flipVertical(baseBitmap);
-        if (flippedBitmap != null) {
-            // 释放旧的baseBitmap（如果不是原始图片）
-            if (baseBitmap != originalBitmap) {
-                baseBitmap.recycle();
-            }
-            Bitmap oldCurrentBitmap = currentBitmap;
-            baseBitmap = flippedBitmap;
-            
-            // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-            if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                currentBrightness == 0 && currentContrast == 0) {
-                currentBitmap = baseBitmap;
-            } else {
-                currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            }
-            
-            // 释放旧的currentBitmap
-            if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                oldCurrentBitmap.recycle();
-            }
-            
-            // 重新应用滤镜和亮度对比度
-            if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                applyFilter();
-            } else {
-                applyBrightnessContrast();
-            }
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
-            
-            // 更新裁剪覆盖层的图片信息
-            if (currentMode == EditMode.CROP) {
-                updateCropOverlayImageInfo();
-            }
-        }
+        if (editGraph == null) return;
+        
+        // 与之前连续的几何操作合并，从几何操作的输入重新采样一次
+        editGraph.add(GeometryOperation.flipVertical());
+        refreshBaseBitmap();
     }
     
-    private void applyBrightnessContrast() {
+    /**
+     * 根据当前滤镜和亮度对比度重新渲染currentBitmap
+     * 没有颜色调整时直接显示baseBitmap，否则交给预览调度器在后台渲染，
+     * 拖动滑动条时只渲染最新的值，不阻塞主线程
+     */
+    private void applyColorAdjustments() {
         if (baseBitmap == null) return;
         
-        currentBitmap = ImageProcessUtils.applyBrightnessContrast(
-            baseBitmap, currentBrightness, currentContrast);
-        if (currentBitmap != null) {
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
+        ColorPipeline pipeline = new ColorPipeline(currentFilter, currentBrightness, currentContrast);
+        if (pipeline.isIdentity()) {
+            colorPreviewScheduler.cancel();
+            showCurrentBitmap(baseBitmap);
+            return;
+        }
+        colorPreviewScheduler.request(new ColorPreviewRequest(baseBitmap, getPreviewProxy(), pipeline));
+    }
+    
+    /**
+     * 获取baseBitmap的预览代理图
+     * 代理图按ZoomableImageView的显示尺寸缩小，实时预览的耗时与原图大小无关；
+     * 全分辨率结果只在确认或保存时渲染
+     */
+    private Bitmap getPreviewProxy() {
+        if (previewProxyBitmap != null && previewProxySource == baseBitmap && 
+            !previewProxyBitmap.isRecycled()) {
+            return previewProxyBitmap;
+        }
+        releasePreviewProxy();
+        
+        int viewWidth = imageView.getWidth();
+        int viewHeight = imageView.getHeight();
+        if (viewWidth == 0 || viewHeight == 0) {
+            viewWidth = getResources().getDisplayMetrics().widthPixels;
+            viewHeight = getResources().getDisplayMetrics().heightPixels;
+        }
+        previewProxyBitmap = ImageProcessUtils.createPreviewProxy(baseBitmap, viewWidth, viewHeight);
+        if (previewProxyBitmap == baseBitmap) {
+            // 图片不大于视图时也复制一份，代理图只由渲染线程读取和回收，不与editGraph共用
+            previewProxyBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        previewProxySource = baseBitmap;
+        return previewProxyBitmap;
+    }
+    
+    /**
+     * 释放预览代理图
+     * 渲染线程可能正在读取代理图，取消请求后在渲染线程上回收，不在主线程直接回收
+     */
+    private void releasePreviewProxy() {
+        Bitmap proxy = previewProxyBitmap;
+        previewProxyBitmap = null;
+        previewProxySource = null;
+        if (proxy == null) {
+            return;
+        }
+        colorPreviewScheduler.cancel();
+        if (proxy != currentBitmap && !proxy.isRecycled()) {
+            colorPreviewScheduler.runAfterRendering(proxy::recycle);
+        }
+    }
+    
+    private void onColorPreviewReady(ColorPreviewRequest request, Bitmap frame) {
+        // baseBitmap已被替换（裁剪、旋转等），结果已过期
+        if (request.source != baseBitmap) {
+            recycleIfUnused(frame);
+            return;
+        }
+        showCurrentBitmap(frame);
+    }
+    
+    /**
+     * 将亮度对比度永久应用到baseBitmap
+     * 在确认调节时调用，按最终的滑动条数值追加一个颜色操作
+     */
+    private void applyAdjustToBase() {
+        colorPreviewScheduler.cancel();
+        if (editGraph == null || (currentBrightness == 0 && currentContrast == 0)) {
+            return;
+        }
+        
+        editGraph.add(new ColorOperation(
+            FilterUtils.FilterType.ORIGINAL, currentBrightness, currentContrast));
+        // 亮度对比度已合并到baseBitmap，重置状态避免重复应用
+        currentBrightness = 0;
+        currentContrast = 0;
+        refreshBaseBitmap();
+    }
+    
+    /**
+     * 从editGraph取得最新的编辑结果作为baseBitmap并重新显示
+     * 只有最后一个缓存结果之后的操作会被重新计算
+     */
+    private void refreshBaseBitmap() {
+        if (editGraph == null) return;
+        
+        baseBitmap = editGraph.render();
+        
+        // 颜色调整会从baseBitmap重新渲染，这里先直接显示baseBitmap，不创建副本
+        showCurrentBitmap(baseBitmap);
+        applyColorAdjustments();
+        
+        // 更新裁剪覆盖层的图片信息（因为图片尺寸可能已变化）
+        if (currentMode == EditMode.CROP) {
+            updateCropOverlayImageInfo();
+        }
+    }
+    
+    /**
+     * 显示新的currentBitmap，并释放旧的currentBitmap
+     */
+    private void showCurrentBitmap(Bitmap bitmap) {
+        Bitmap oldCurrentBitmap = currentBitmap;
+        currentBitmap = bitmap;
+        imageView.setImageBitmap(currentBitmap);
+        imageView.resetTransform();
+        if (oldCurrentBitmap != currentBitmap) {
+            recycleIfUnused(oldCurrentBitmap);
         }
     }
     
+    /**
+     * 释放不再被editGraph/currentBitmap引用的图片
+     */
+    private void recycleIfUnused(Bitmap bitmap) {
+        if (bitmap != null && bitmap != baseBitmap && !isOwnedByEditGraph(bitmap) && 
+            bitmap != currentBitmap && bitmap != previewProxyBitmap && !bitmap.isRecycled()) {
+            bitmap.recycle();
+        }
+    }
+    
+    private boolean isOwnedByEditGraph(Bitmap bitmap) {
+        return editGraph != null && editGraph.isCached(bitmap);
+    }
+    
     /**
      * 应用当前编辑模式的操作
      * 根据不同的编辑模式执行相应的应用操作
@@ -1892,51 +1742,20 @@ public class ImageEditActivity extends BaseActivity {
         switch (currentMode) {
             case CROP:
                 applyCrop();
-                if (cropModeBaseBitmap != null && cropModeBaseBitmap != originalBitmap && 
-                    cropModeBaseBitmap != baseBitmap) {
-                    cropModeBaseBitmap.recycle();
-                    cropModeBaseBitmap = null;
-                }
                 break;
             case ADJUST:
-                if (currentBitmap != baseBitmap) {
-                    if (baseBitmap != originalBitmap) {
-                        baseBitmap.recycle();
-                    }
-                    baseBitmap = currentBitmap.copy(Bitmap.Config.RGB_565, true);
-                }
+                applyAdjustToBase();
                 break;
             case ROTATE:
-                // 旋转操作已经实时应用到baseBitmap，确认时清理保存的状态
-                if (rotateModeBaseBitmap != null && rotateModeBaseBitmap != originalBitmap && 
-                    rotateModeBaseBitmap != baseBitmap) {
-                    rotateModeBaseBitmap.recycle();
-                    rotateModeBaseBitmap = null;
-                }
+                // 旋转操作已经实时追加到editGraph，确认时无需处理
                 break;
             case TEXT:
                 // 文字模式下，将文字绘制到图片上
                 applyTexts();
                 break;
             case FILTER:
-                // 将滤镜应用到baseBitmap（永久应用）
+                // 将滤镜应用到baseBitmap（永久应用），并重新显示
                 applyFilterToBase();
-                // 重新应用亮度对比度（如果有）
-                Bitmap oldCurrentBitmap = currentBitmap;
-                if (currentBrightness != 0 || currentContrast != 0) {
-                    currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-                    applyBrightnessContrast();
-                } else {
-                    // 优化：如果不需要亮度对比度，直接使用baseBitmap
-                    currentBitmap = baseBitmap;
-                    imageView.setImageBitmap(currentBitmap);
-                    imageView.resetTransform();
-                }
-                // 释放旧的currentBitmap
-                if (oldCurrentBitmap != null && oldCurrentBitmap != baseBitmap && 
-                    oldCurrentBitmap != originalBitmap && oldCurrentBitmap != currentBitmap) {
-                    oldCurrentBitmap.recycle();
-                }
                 break;
             case STICKER:
                 // 贴纸模式下，将贴纸绘制到图片上
@@ -1967,42 +1786,14 @@ public class ImageEditActivity extends BaseActivity {
             imageViewHeight = editContainer.getHeight();
         }
         
-        Bitmap textBitmap = TextDrawUtils.drawTextsOnBitmap(
-            baseBitmap, textViews, imageViewWidth, imageViewHeight, getResources());
-        // 释放旧的baseBitmap（如果不是原始图片）
-        if (baseBitmap != originalBitmap && textBitmap != baseBitmap) {
-            baseBitmap.recycle();
+        // 记录文字相对图片的位置和样式，作为一个操作追加到editGraph
+        java.util.List<TextDrawUtils.TextLayer> layers = TextDrawUtils.captureTextLayers(
+            textViews, baseBitmap.getWidth(), baseBitmap.getHeight(), 
+            imageViewWidth, imageViewHeight, getResources());
+        if (!layers.isEmpty()) {
+            editGraph.add(new TextOperation(layers));
+            refreshBaseBitmap();
         }
-        Bitmap oldBaseBitmap = baseBitmap;
-        Bitmap oldCurrentBitmap = currentBitmap;
-        baseBitmap = textBitmap;
-        
-        // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-        if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-            currentBrightness == 0 && currentContrast == 0) {
-            currentBitmap = baseBitmap;
-        } else {
-            currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-        }
-        
-        // 释放旧的bitmap
-        if (oldBaseBitmap != null && oldBaseBitmap != originalBitmap && 
-            oldBaseBitmap != baseBitmap) {
-            oldBaseBitmap.recycle();
-        }
-        if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-            oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-            oldCurrentBitmap.recycle();
-        }
-        
-        // 重新应用滤镜和亮度对比度
-        if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-            applyFilter();
-        } else {
-            applyBrightnessContrast();
-        }
-        imageView.setImageBitmap(currentBitmap);
-        imageView.resetTransform();
         
         // 清除所有文字编辑模块
         clearAllTextViews();
@@ -2047,43 +1838,10 @@ public class ImageEditActivity extends BaseActivity {
         if (y + height > baseBitmap.getHeight()) height = baseBitmap.getHeight() - y;
         
         if (width > 0 && height > 0) {
-            Bitmap croppedBitmap = Bitmap.createBitmap(baseBitmap, x, y, width, height);
-            // 释放旧的baseBitmap和currentBitmap
-            Bitmap oldBaseBitmap = baseBitmap;
-            Bitmap oldCurrentBitmap = currentBitmap;
-            baseBitmap = croppedBitmap;
-            
-            // 优化：如果不需要滤镜和亮度对比度，直接使用baseBitmap
-            if (currentFilter == FilterUtils.FilterType.ORIGINAL && 
-                currentBrightness == 0 && currentContrast == 0) {
-                currentBitmap = baseBitmap;
-            } else {
-                currentBitmap = baseBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            }
-            
-            // 释放旧的bitmap
-            if (oldBaseBitmap != null && oldBaseBitmap != originalBitmap && 
-                oldBaseBitmap != baseBitmap) {
-                oldBaseBitmap.recycle();
-            }
-            if (oldCurrentBitmap != null && oldCurrentBitmap != originalBitmap && 
-                oldCurrentBitmap != baseBitmap && oldCurrentBitmap != currentBitmap) {
-                oldCurrentBitmap.recycle();
-            }
-            
-            // 重新应用滤镜和亮度对比度
-            if (currentFilter != FilterUtils.FilterType.ORIGINAL) {
-                applyFilter();
-            } else {
-                applyBrightnessContrast();
-            }
-            imageView.setImageBitmap(currentBitmap);
-            imageView.resetTransform();
-            
-            // 更新裁剪覆盖层的图片信息（因为图片尺寸已变化）
-            if (currentMode == EditMode.CROP) {
-                updateCropOverlayImageInfo();
-            }
+            // 裁剪区域按比例保存，与之前连续的旋转、翻转合并为一个几何操作
+            editGraph.add(GeometryOperation.crop(
+                x, y, width, height, baseBitmap.getWidth(), baseBitmap.getHeight()));
+            refreshBaseBitmap();
         }
     }
     
@@ -2109,31 +1867,51 @@ public class ImageEditActivity extends BaseActivity {
      * 在后台线程中执行，添加水印后保存
      */
     private void saveImage() {
+        // 屏幕上显示的是最长边1200的编辑图，保存时从原图文件按编辑操作重新渲染全分辨率结果；
+        // 尚未确认的颜色调整和文字作为额外的操作一起导出
+        java.util.List<EditOperation> operations = new java.util.ArrayList<>(editGraph.getOperations());
+        java.util.List<EditOperation> pendingOperations = new java.util.ArrayList<>();
+        ColorOperation pendingColor = new ColorOperation(currentFilter, currentBrightness, currentContrast);
+        if (!pendingColor.isIdentity()) {
+            pendingOperations.add(pendingColor);
+        }
+        if (!textViews.isEmpty()) {
+            float imageViewWidth = imageView.getWidth();
+            float imageViewHeight = imageView.getHeight();
+            if (imageViewWidth == 0 || imageViewHeight == 0) {
+                imageViewWidth = editContainer.getWidth();
+                imageViewHeight = editContainer.getHeight();
+            }
+            java.util.List<TextDrawUtils.TextLayer> layers = TextDrawUtils.captureTextLayers(
+                textViews, baseBitmap.getWidth(), baseBitmap.getHeight(),
+                imageViewWidth, imageViewHeight, getResources());
+            if (!layers.isEmpty()) {
+                pendingOperations.add(new TextOperation(layers));
+            }
+        }
+        operations.addAll(pendingOperations);
+        Bitmap sourceBitmap = baseBitmap;
+        String sourcePath = imagePath;
         new Thread(() -> {
             try {
-                if (currentBitmap == null) {
+                Bitmap exportedBitmap;
+                try {
+                    exportedBitmap = EditExporter.export(
+                        sourcePath, operations, EditExporter.getDefaultMemoryCeiling());
+                    ImageProcessUtils.drawWatermark(exportedBitmap, "训练营");
+                } catch (IOException | OutOfMemoryError e) {
+                    // 原图不支持区域解码（如部分PNG/WebP）或内存不足时，退回到编辑图分辨率
+                    e.printStackTrace();
+                    exportedBitmap = renderOnEditBitmap(sourceBitmap, pendingOperations);
+                }
+                if (exportedBitmap == null) {
                     runOnUiThread(() -> Toast.makeText(this, "生成图片失败", Toast.LENGTH_SHORT).show());
                     return;
                 }
                 
-                // 如果还有未应用的文字，先绘制到图片上
-                Bitmap finalBitmap = currentBitmap;
-                if (!textViews.isEmpty()) {
-                    float imageViewWidth = imageView.getWidth();
-                    float imageViewHeight = imageView.getHeight();
-                    if (imageViewWidth == 0 || imageViewHeight == 0) {
-                        imageViewWidth = editContainer.getWidth();
-                        imageViewHeight = editContainer.getHeight();
-                    }
-                    finalBitmap = TextDrawUtils.drawTextsOnBitmap(
-                        currentBitmap, textViews, imageViewWidth, imageViewHeight, getResources());
-                }
-                
-                // 添加水印
-                Bitmap watermarkedBitmap = ImageProcessUtils.addWatermark(finalBitmap, "训练营");
-                
                 // 保存到相册
-                String savedPath = ImageSaveUtils.saveToGallery(this, watermarkedBitmap);
+                String savedPath = ImageSaveUtils.saveToGallery(this, exportedBitmap);
+                exportedBitmap.recycle();
                 
                 runOnUiThread(() -> {
                     if (savedPath != null) {
@@ -2151,6 +1929,44 @@ public class ImageEditActivity extends BaseActivity {
         }).start();
     }
     
+    /**
+     * 在编辑图上应用未确认的操作并添加水印，全分辨率导出失败时使用
+     *
+     * @return 新图片，不会是editGraph持有的图片
+     */
+    private Bitmap renderOnEditBitmap(Bitmap sourceBitmap, java.util.List<EditOperation> pendingOperations) {
+        Bitmap current = sourceBitmap;
+        for (EditOperation operation : pendingOperations) {
+            Bitmap next = operation.apply(current);
+            if (next != null && next != current) {
+                if (current != sourceBitmap) {
+                    current.recycle();
+                }
+                current = next;
+            }
+        }
+        Bitmap watermarkedBitmap = ImageProcessUtils.addWatermark(current, "训练营");
+        if (current != sourceBitmap && current != watermarkedBitmap) {
+            current.recycle();
+        }
+        return watermarkedBitmap;
+    }
+    
+    /**
+     * 颜色预览渲染请求
+     */
+    private static class ColorPreviewRequest {
+        final Bitmap source; // 请求时的baseBitmap，用于判断结果是否过期
+        final Bitmap proxy; // 实际渲染的低分辨率代理图
+        final ColorPipeline pipeline;
+        
+        ColorPreviewRequest(Bitmap source, Bitmap proxy, ColorPipeline pipeline) {
+            this.source = source;
+            this.proxy = proxy;
+            this.pipeline = pipeline;
+        }
+    }
+    
     public static void start(Context context, String imagePath) {
         Intent intent = new Intent(context, ImageEditActivity.class);
         intent.putExtra(EXTRA_IMAGE_PATH, imagePath);
@@ -3,16 +3,10 @@ package com.tiktok.ic.camera.activity;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
-import android.net.Uri;
 import android.content.res.Configuration;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.provider.MediaStore;
 import android.view.View;
 import android.widget.Button;
-import android.widget.GridView;
 import android.widget.ListView;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
@@ -23,20 +17,31 @@ import androidx.core.app.ActivityOptionsCompat;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.tiktok.ic.camera.Adapter.AlbumAdapter;
 import com.tiktok.ic.camera.Adapter.ImageAdapter;
+import com.tiktok.ic.camera.Adapter.ImageGridAdapter;
 import com.tiktok.ic.camera.R;
+import com.tiktok.ic.camera.media.MediaAlbum;
+import com.tiktok.ic.camera.media.MediaAlbumLoader;
+import com.tiktok.ic.camera.media.MediaIndex;
+import com.tiktok.ic.camera.media.MediaIndexLoader;
+import com.tiktok.ic.camera.media.MediaItem;
+import com.tiktok.ic.camera.media.MediaPageLoader;
+import com.tiktok.ic.camera.thumbnail.GridPrefetcher;
+import com.tiktok.ic.camera.thumbnail.ThumbnailLoader;
 import com.tiktok.ic.camera.utils.PermissionUtils;
+import com.tiktok.ic.camera.widget.DateFastScrollerView;
+import com.tiktok.ic.camera.widget.GridSpacingItemDecoration;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 图片相册Activity
@@ -45,9 +50,16 @@ import java.util.Map;
 public class ImageGalleryActivity extends BaseActivity {
 
     private static final int REQUEST_STORAGE_PERMISSION = 100;
+    // 预取滑动方向上的缩略图行数
+    private static final int PREFETCH_ROWS = 4;
+    private static final int GRID_COLUMNS = 3;
+    private static final float GRID_SPACING_DP = 12;
 
     private RadioGroup tabRadioGroup;
-    private GridView imageGridView;
+    private RecyclerView imageGridView;
+    private GridLayoutManager gridLayoutManager;
+    private RecyclerView.RecycledViewPool viewPool;
+    private DateFastScrollerView dateFastScroller;
     private ListView folderListView;
     private TextView emptyStateTextView;
     private Button backButton;
@@ -57,13 +69,19 @@ public class ImageGalleryActivity extends BaseActivity {
 
     private ImageAdapter imageAdapter;
     private AlbumAdapter albumAdapter;
-    private List<String> allImagePaths;
-    private Map<String, List<String>> imageFolders;
-    private List<String> folderNames;
+    // 图片和相册数据与界面无关，旋转屏幕重建界面时保留
+    private final MediaIndex mediaIndex = new MediaIndex();
+    private final List<MediaAlbum> albums = new ArrayList<>();
     private boolean isAllImagesMode = true;
     private boolean inFolderDetailMode = false;
-    private String currentFolderName = null;
+    private MediaAlbum currentAlbum = null;
     private ActivityResultLauncher<Intent> previewLauncher;
+    private MediaIndexLoader indexLoader;
+    private MediaAlbumLoader albumLoader;
+    // 打开相册时按需加载该相册中的图片
+    private MediaPageLoader folderLoader;
+    // 打开的相册中已加载的图片，每次变化后把快照交给适配器
+    private final MediaIndex folderImages = new MediaIndex();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,15 +120,14 @@ public class ImageGalleryActivity extends BaseActivity {
 
         // 设置文件夹列表项点击事件
         folderListView.setOnItemClickListener((parent, view, position, id) -> {
-            String folderName = folderNames.get(position);
-            List<String> folderImages = imageFolders.get(folderName);
-            showFolderImages(folderName, folderImages);
+            showFolderImages(albums.get(position));
         });
     }
 
     private void initViews() {
         tabRadioGroup = findViewById(R.id.tab_radio_group);
         imageGridView = findViewById(R.id.image_grid_view);
+        dateFastScroller = findViewById(R.id.date_fast_scroller);
         folderListView = findViewById(R.id.folder_list_view);
         emptyStateTextView = findViewById(R.id.empty_state_text_view);
         backButton = findViewById(R.id.back_button);
@@ -118,11 +135,7 @@ public class ImageGalleryActivity extends BaseActivity {
         folderDetailTitle = findViewById(R.id.folder_detail_title);
         folderDetailAction = findViewById(R.id.folder_detail_action);
 
-        allImagePaths = new ArrayList<>();
-        imageFolders = new HashMap<>();
-        folderNames = new ArrayList<>();
-
-        imageAdapter = new ImageAdapter(this, allImagePaths);
+        imageAdapter = new ImageAdapter(mediaIndex.snapshot());
         // 设置item点击监听：直接点击图片时进入编辑界面
         imageAdapter.setOnItemClickListener(imagePath -> {
             if (imagePath != null) {
@@ -146,9 +159,45 @@ public class ImageGalleryActivity extends BaseActivity {
             );
             previewLauncher.launch(previewIntent, options);
         });
+        gridLayoutManager = new GridLayoutManager(this, GRID_COLUMNS);
+        // 滑动时利用空闲的帧提前创建和绑定即将出现的单元格
+        gridLayoutManager.setItemPrefetchEnabled(true);
+        imageGridView.setLayoutManager(gridLayoutManager);
+        imageGridView.setHasFixedSize(true);
+        viewPool = ImageGridAdapter.createViewPool();
+        imageGridView.setRecycledViewPool(viewPool);
+        imageGridView.addItemDecoration(new GridSpacingItemDecoration(
+                (int) (GRID_SPACING_DP * getResources().getDisplayMetrics().density)));
         imageGridView.setAdapter(imageAdapter);
+        // 按滑动方向预取即将出现的缩略图
+        GridPrefetcher prefetcher = new GridPrefetcher(imageGridView, ImageAdapter.THUMBNAIL_SIZE, PREFETCH_ROWS);
+        imageGridView.addOnScrollListener(prefetcher);
+        imageGridView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int first = gridLayoutManager.findFirstVisibleItemPosition();
+                int last = gridLayoutManager.findLastVisibleItemPosition();
+                if (first != RecyclerView.NO_POSITION) {
+                    dateFastScroller.setScrollPosition(first, last - first + 1, imageAdapter.getItemCount());
+                }
+            }
+        });
+        dateFastScroller.setOnPositionSelectedListener(new DateFastScrollerView.OnPositionSelectedListener() {
+            @Override
+            public void onPositionSelected(int position) {
+                // 跳过的月份不再预取；跳转后划过的单元格的请求被移出队列，落点的缩略图最先解码
+                ThumbnailLoader.getInstance().cancelPrefetches();
+                gridLayoutManager.scrollToPositionWithOffset(position, 0);
+            }
+
+            @Override
+            public void onDragFinished() {
+                // 松开后按停止滚动处理，预取落点之后的行
+                prefetcher.onScrollStateChanged(imageGridView, RecyclerView.SCROLL_STATE_IDLE);
+            }
+        });
 
-        albumAdapter = new AlbumAdapter(this, folderNames, imageFolders);
+        albumAdapter = new AlbumAdapter(this, albums);
         folderListView.setAdapter(albumAdapter);
     }
 
@@ -175,71 +224,106 @@ public class ImageGalleryActivity extends BaseActivity {
 
 
     private void loadImages() {
-        new Thread(() -> {
-            // 从MediaStore加载图片
-            loadImagesFromMediaStore();
-            
-            // 在主线程更新UI
-            new Handler(Looper.getMainLooper()).post(() -> {
-                if (allImagePaths.isEmpty()) {
+        // 重新加载时停止上一次尚未完成的加载
+        cancelLoaders();
+        albums.clear();
+
+        // 先显示本地保存的索引，再在后台与MediaStore核对
+        indexLoader = new MediaIndexLoader(this, mediaIndex, new MediaIndexLoader.Listener() {
+            @Override
+            public void onIndexLoaded() {
+                updateUI();
+            }
+
+            @Override
+            public void onItemsAppended(List<MediaItem> items) {
+                // 追加的一页只通知新增的范围
+                if (isAllImagesMode) {
+                    imageAdapter.appendImages(mediaIndex.snapshot());
+                    updateFastScroller();
+                }
+            }
+
+            @Override
+            public void onIndexChanged(List<MediaItem> removed) {
+                onMediaChanged();
+            }
+
+            @Override
+            public void onLoadFinished() {
+                if (mediaIndex.isEmpty()) {
                     showEmptyState();
-                } else {
-                    updateUI();
                 }
-            });
-        }).start();
+            }
+        });
+        indexLoader.start();
+
+        loadAlbums();
     }
 
-    private void loadImagesFromMediaStore() {
-        Uri uri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-        String[] projection = {
-                MediaStore.Images.Media.DATA,
-                MediaStore.Images.Media.BUCKET_DISPLAY_NAME
-        };
-        String sortOrder = MediaStore.Images.Media.DATE_ADDED + " DESC";
-
-        try (Cursor cursor = getContentResolver().query(uri, projection, null, null, sortOrder)) {
-            allImagePaths.clear();
-            imageFolders.clear();
-            folderNames.clear();
-
-            if (cursor != null) {
-                int dataColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
-                int bucketColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_DISPLAY_NAME);
-
-                while (cursor.moveToNext()) {
-                    String path = cursor.getString(dataColumnIndex);
-                    String folderName = cursor.getString(bucketColumnIndex);
-
-                    // 添加到所有图片列表
-                    allImagePaths.add(path);
-
-                    // 按文件夹分类
-                    List<String> folderList = imageFolders.get(folderName);
-                    if (folderList == null) {
-                        folderList = new ArrayList<>();
-                        imageFolders.put(folderName, folderList);
-                        folderNames.add(folderName);
-                    }
-                    folderList.add(path);
-                }
+    /**
+     * 相册列表只统计数量和封面，与图片列表并行加载
+     */
+    private void loadAlbums() {
+        if (albumLoader != null) {
+            albumLoader.cancel();
+        }
+        albumLoader = new MediaAlbumLoader(getContentResolver());
+        albumLoader.start(loadedAlbums -> {
+            albums.clear();
+            albums.addAll(loadedAlbums);
+            albumAdapter.setAlbums(albums);
+        });
+    }
 
-                Collections.sort(folderNames);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * 索引被增量更新后刷新当前显示的列表
+     */
+    private void onMediaChanged() {
+        if (mediaIndex.isEmpty()) {
+            showEmptyState();
+        } else if (emptyStateTextView.getVisibility() == View.VISIBLE) {
+            updateUI();
+        } else if (isAllImagesMode) {
+            // 与当前显示的列表比较，只更新变化的单元格
+            imageAdapter.submitImages(mediaIndex.snapshot());
+            updateFastScroller();
+        } else if (inFolderDetailMode && currentAlbum != null) {
+            loadFolderImages(currentAlbum);
+        }
+        // 相册的数量和封面可能变化，重新统计
+        loadAlbums();
+    }
+
+    private void cancelLoaders() {
+        if (indexLoader != null) {
+            indexLoader.cancel();
+        }
+        if (albumLoader != null) {
+            albumLoader.cancel();
+        }
+        cancelFolderLoader();
+    }
+
+    private void cancelFolderLoader() {
+        if (folderLoader != null) {
+            folderLoader.cancel();
+            folderLoader = null;
         }
     }
 
     private void updateUI() {
-        imageAdapter.setImages(allImagePaths);
-        albumAdapter.setFolders(folderNames, imageFolders);
+        // 回到所有图片，打开的相册不再需要继续加载
+        cancelFolderLoader();
+        imageAdapter.setImages(mediaIndex.snapshot());
+        albumAdapter.setAlbums(albums);
         emptyStateTextView.setVisibility(View.GONE);
         imageGridView.setVisibility(View.VISIBLE);
         folderListView.setVisibility(View.GONE);
         folderDetailBar.setVisibility(View.GONE);
         inFolderDetailMode = false;
-        currentFolderName = null;
+        currentAlbum = null;
+        updateFastScroller();
     }
 
     private void showEmptyState() {
@@ -247,16 +331,30 @@ public class ImageGalleryActivity extends BaseActivity {
         emptyStateTextView.setVisibility(View.VISIBLE);
         imageGridView.setVisibility(View.GONE);
         folderListView.setVisibility(View.GONE);
+        updateFastScroller();
+    }
+
+    /**
+     * 按年月快速滚动只用于所有图片的网格
+     */
+    private void updateFastScroller() {
+        boolean visible = isAllImagesMode && !inFolderDetailMode && imageGridView.getVisibility() == View.VISIBLE;
+        dateFastScroller.setVisibility(visible ? View.VISIBLE : View.GONE);
+        if (visible) {
+            dateFastScroller.setSections(mediaIndex.getSections());
+        }
     }
 
     private void switchToAllImagesMode() {
         isAllImagesMode = true;
         inFolderDetailMode = false;
-        currentFolderName = null;
+        currentAlbum = null;
+        cancelFolderLoader();
         folderDetailBar.setVisibility(View.GONE);
-        imageAdapter.setImages(allImagePaths);
+        imageAdapter.setImages(mediaIndex.snapshot());
         imageGridView.setVisibility(View.VISIBLE);
         folderListView.setVisibility(View.GONE);
+        updateFastScroller();
     }
 
     private void switchToFoldersMode() {
@@ -268,25 +366,86 @@ public class ImageGalleryActivity extends BaseActivity {
             folderListView.setVisibility(View.VISIBLE);
             folderDetailBar.setVisibility(View.GONE);
         }
+        updateFastScroller();
     }
 
-    private void showFolderImages(String folderName, List<String> folderImages) {
-        if (folderImages == null || folderImages.isEmpty()) {
+    private void showFolderImages(MediaAlbum album) {
+        if (album == null || album.count == 0) {
             Toast.makeText(this, "该文件夹暂无图片", Toast.LENGTH_SHORT).show();
             return;
         }
-        currentFolderName = folderName;
+        currentAlbum = album;
+        inFolderDetailMode = true;
+        folderImages.clear();
+        imageAdapter.setImages(new MediaIndex());
+        showFolderDetailUI();
+        tabRadioGroup.check(R.id.radio_folders);
+        loadFolderImages(album);
+    }
+
+    /**
+     * 相册中的图片在打开时才加载，第一页到达后即显示
+     */
+    private void loadFolderImages(MediaAlbum album) {
+        cancelFolderLoader();
+        folderLoader = MediaPageLoader.forBucket(getContentResolver(), album.bucketId);
+        folderLoader.start(new MediaPageLoader.Listener() {
+            private boolean loaded;
+
+            @Override
+            public void onPageLoaded(List<MediaItem> items, boolean firstPage) {
+                if (!inFolderDetailMode) {
+                    return;
+                }
+                // 重新加载已打开的相册时，第一页替换原来的列表，与原来的列表比较后只更新变化的单元格
+                if (firstPage) {
+                    folderImages.clear();
+                }
+                folderImages.addPage(items);
+                if (firstPage) {
+                    imageAdapter.submitImages(folderImages.snapshot());
+                } else {
+                    imageAdapter.appendImages(folderImages.snapshot());
+                }
+                loaded = true;
+            }
+
+            @Override
+            public void onLoadFinished() {
+                folderLoader = null;
+                if (!inFolderDetailMode) {
+                    return;
+                }
+                if (!loaded) {
+                    folderImages.clear();
+                    imageAdapter.submitImages(new MediaIndex());
+                }
+            }
+        });
+    }
+
+    /**
+     * 重建界面后重新显示打开的相册，已加载的图片直接显示
+     *
+     * @param loading 相册是否还在分页加载；是则重新加载，第一页与已加载的图片比较后更新
+     */
+    private void reopenFolder(MediaAlbum album, boolean loading) {
+        currentAlbum = album;
         inFolderDetailMode = true;
-        imageAdapter.setImages(folderImages);
+        imageAdapter.setImages(folderImages.snapshot());
         showFolderDetailUI();
         tabRadioGroup.check(R.id.radio_folders);
+        if (loading) {
+            loadFolderImages(album);
+        }
     }
 
     private void showFolderDetailUI() {
         folderDetailBar.setVisibility(View.VISIBLE);
-        folderDetailTitle.setText(currentFolderName == null ? "" : currentFolderName);
+        folderDetailTitle.setText(currentAlbum == null || currentAlbum.name == null ? "" : currentAlbum.name);
         folderListView.setVisibility(View.GONE);
         imageGridView.setVisibility(View.VISIBLE);
+        updateFastScroller();
     }
 
     private void exitFolderDetail() {
@@ -294,10 +453,12 @@ public class ImageGalleryActivity extends BaseActivity {
             return;
         }
         inFolderDetailMode = false;
-        currentFolderName = null;
+        currentAlbum = null;
+        cancelFolderLoader();
         folderDetailBar.setVisibility(View.GONE);
         folderListView.setVisibility(View.VISIBLE);
         imageGridView.setVisibility(View.GONE);
+        updateFastScroller();
     }
 
     @Override
@@ -319,21 +480,36 @@ public class ImageGalleryActivity extends BaseActivity {
         folderDetailAction.setOnClickListener(v -> exitFolderDetail());
         
         folderListView.setOnItemClickListener((parent, view, position, id) -> {
-            String folderName = folderNames.get(position);
-            List<String> folderImages = imageFolders.get(folderName);
-            showFolderImages(folderName, folderImages);
+            showFolderImages(albums.get(position));
         });
         
-        if (!allImagePaths.isEmpty()) {
+        // 数据在Activity中保留，重建界面后直接显示，不重新扫描媒体库
+        // updateUI会退出打开的相册，先记下相册和加载状态
+        MediaAlbum openAlbum = inFolderDetailMode ? currentAlbum : null;
+        boolean albumLoading = folderLoader != null;
+        if (!mediaIndex.isEmpty()) {
             updateUI();
-            if (inFolderDetailMode && currentFolderName != null) {
-                showFolderDetailUI();
+            if (openAlbum != null) {
+                reopenFolder(openAlbum, albumLoading);
             }
         } else if (PermissionUtils.hasPermission(this, PermissionUtils.PermissionType.STORAGE)) {
             loadImages();
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 解除适配器时单元格被回收并释放缩略图，之后清空回收池
+        if (imageGridView != null) {
+            imageGridView.setAdapter(null);
+        }
+        if (viewPool != null) {
+            viewPool.clear();
+        }
+        cancelLoaders();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
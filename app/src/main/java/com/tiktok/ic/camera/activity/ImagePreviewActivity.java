@@ -16,6 +16,7 @@ import android.widget.Toast;
 import androidx.activity.OnBackPressedCallback;
 
 import com.tiktok.ic.camera.R;
+import com.tiktok.ic.camera.thumbnail.ThumbnailLoader;
 
 import java.io.InputStream;
 
@@ -40,6 +41,8 @@ public class ImagePreviewActivity extends BaseActivity {
     private boolean isMultiSelectMode = false;
     private boolean isSelected = false;
     private boolean isViewOnlyMode = false;
+    // 当前显示的预览图，退出时放回复用池
+    private Bitmap previewBitmap;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -138,6 +141,8 @@ public class ImagePreviewActivity extends BaseActivity {
             Bitmap bitmap = decodeSampledBitmap(imagePath);
             if (bitmap != null) {
                 previewImageView.setImageBitmap(bitmap);
+                releasePreviewBitmap();
+                previewBitmap = bitmap;
             } else {
                 Toast.makeText(this, "无法加载图片", Toast.LENGTH_SHORT).show();
             }
@@ -191,9 +196,28 @@ public class ImagePreviewActivity extends BaseActivity {
             }
             return null;
         } else {
-            // 从文件路径加载
-            return BitmapFactory.decodeFile(pathOrUri, options);
+            // 从文件路径加载，复用之前预览释放的图片
+            return ThumbnailLoader.getInstance().getBitmapPool().decodeFile(pathOrUri, options);
+        }
+    }
+
+    /**
+     * 将之前显示的预览图放回复用池
+     */
+    private void releasePreviewBitmap() {
+        if (previewBitmap != null) {
+            ThumbnailLoader.getInstance().getBitmapPool().put(previewBitmap);
+            previewBitmap = null;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (previewImageView != null) {
+            previewImageView.setImageDrawable(null);
         }
+        releasePreviewBitmap();
     }
 
     private int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
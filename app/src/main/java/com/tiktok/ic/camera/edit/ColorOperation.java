@@ -0,0 +1,57 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+
+import com.tiktok.ic.camera.utils.ColorLut;
+import com.tiktok.ic.camera.utils.ColorPipeline;
+import com.tiktok.ic.camera.utils.FilterUtils;
+
+/**
+ * 颜色操作（滤镜、亮度、对比度）
+ * 通过 {@link ColorPipeline} 一次遍历像素完成
+ */
+public class ColorOperation implements EditOperation {
+    
+    private final ColorPipeline pipeline;
+    
+    public ColorOperation(FilterUtils.FilterType filter, float brightness, float contrast) {
+        this.pipeline = new ColorPipeline(filter, brightness, contrast);
+    }
+    
+    public FilterUtils.FilterType getFilter() {
+        return pipeline.getFilter();
+    }
+    
+    public float getBrightness() {
+        return pipeline.getBrightness();
+    }
+    
+    public float getContrast() {
+        return pipeline.getContrast();
+    }
+    
+    /**
+     * 是否不改变颜色
+     */
+    public boolean isIdentity() {
+        return pipeline.isIdentity();
+    }
+    
+    /**
+     * 合并后的查找表，用于导出时按条带直接处理像素
+     */
+    public ColorLut getLut() {
+        return pipeline.getLut();
+    }
+    
+    @Override
+    public Bitmap apply(Bitmap input) {
+        return pipeline.apply(input);
+    }
+    
+    @Override
+    public long estimateBytes() {
+        // 管线缓存的查找表：前后两段，每段三个通道
+        return 64 + ColorLut.SIZE * 6 * 4;
+    }
+}
@@ -0,0 +1,267 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+
+import com.tiktok.ic.camera.utils.ColorLut;
+import com.tiktok.ic.camera.utils.StickerDrawUtils;
+import com.tiktok.ic.camera.utils.TextDrawUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 编辑结果导出
+ * 不经过编辑时使用的缩小图（最长边1200），直接从原图文件按编辑操作重新渲染全分辨率结果。
+ *
+ * 原图用 {@link BitmapRegionDecoder} 按条带解码，每个条带先经过颜色操作，
+ * 再按合并后的几何变换（旋转、翻转、裁剪）绘制到输出图片上，同一时间只有一个条带在内存中；
+ * 文字、贴纸等图层和位于图层之后的颜色操作最后在输出图片上按顺序处理。
+ *
+ * Android没有逐行写入的JPEG编码器，输出图片需要完整保存在内存中：
+ * 输出超过内存上限时按比例缩小到上限以内，内存占用为输出图片加一个条带
+ */
+public class EditExporter {
+
+    // 每个解码条带的目标大小
+    private static final int STRIP_BYTES = 4 * 1024 * 1024;
+    // 条带上下多解码的行数，避免缩放插值时条带边缘出现接缝
+    private static final int STRIP_OVERLAP_ROWS = 2;
+    // 在输出图片上做颜色处理时每次读取的像素数
+    private static final int BAND_PIXELS = 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * 默认的输出图片内存上限：可用堆内存的四分之一
+     */
+    public static long getDefaultMemoryCeiling() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * 从原图文件按编辑操作渲染导出图片
+     *
+     * @param imagePath 原图路径
+     * @param operations 编辑操作列表（按顺序）
+     * @param memoryCeilingBytes 输出图片的内存上限
+     * @return 可修改的ARGB_8888图片
+     * @throws IOException 原图无法按区域解码时抛出
+     */
+    public static Bitmap export(String imagePath, List<EditOperation> operations, long memoryCeilingBytes)
+            throws IOException {
+        BitmapRegionDecoder decoder = newDecoder(imagePath);
+        try {
+            return export(decoder, operations, memoryCeilingBytes);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private static Bitmap export(BitmapRegionDecoder decoder, List<EditOperation> operations,
+                                 long memoryCeilingBytes) {
+        int sourceWidth = decoder.getWidth();
+        int sourceHeight = decoder.getHeight();
+
+        // 几何操作只改变像素位置，与颜色操作可以交换顺序，全部合并为一个变换
+        GeometryOperation geometry = GeometryOperation.identity();
+        int firstLayerIndex = operations.size();
+        for (int i = 0; i < operations.size(); i++) {
+            EditOperation operation = operations.get(i);
+            if (operation instanceof GeometryOperation) {
+                geometry = geometry.then((GeometryOperation) operation);
+            } else if (isLayer(operation) && firstLayerIndex == operations.size()) {
+                firstLayerIndex = i;
+            }
+        }
+
+        // 只需要解码输出区域对应的原图部分
+        RectF sourceRect = geometry.getSourceRect();
+        Rect region = new Rect(
+            Math.max(0, Math.round(sourceRect.left * sourceWidth)),
+            Math.max(0, Math.round(sourceRect.top * sourceHeight)),
+            Math.min(sourceWidth, Math.round(sourceRect.right * sourceWidth)),
+            Math.min(sourceHeight, Math.round(sourceRect.bottom * sourceHeight)));
+        if (region.isEmpty()) {
+            region.set(0, 0, sourceWidth, sourceHeight);
+        }
+
+        // 输出尺寸：全分辨率，超过内存上限时等比缩小
+        float[] fullSize = geometry.getOutputSize(sourceWidth, sourceHeight);
+        double fullBytes = (double) fullSize[0] * fullSize[1] * BYTES_PER_PIXEL;
+        float scale = fullBytes > memoryCeilingBytes
+            ? (float) Math.sqrt(memoryCeilingBytes / fullBytes) : 1.0f;
+        int outputWidth = Math.max(1, Math.round(fullSize[0] * scale));
+        int outputHeight = Math.max(1, Math.round(fullSize[1] * scale));
+
+        Bitmap output = Bitmap.createBitmap(outputWidth, outputHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(output);
+
+        // 原图像素坐标 -> 输出像素坐标
+        Matrix sourceToOutput = geometry.toMatrix(sourceWidth, sourceHeight);
+        sourceToOutput.postScale(outputWidth / fullSize[0], outputHeight / fullSize[1]);
+
+        drawSourceStrips(decoder, region, scale, sourceToOutput,
+            operations.subList(0, firstLayerIndex), canvas);
+
+        // 图层及其之后的颜色操作在输出图片上按顺序处理
+        GeometryOperation prefixGeometry = GeometryOperation.identity();
+        for (int i = 0; i < operations.size(); i++) {
+            EditOperation operation = operations.get(i);
+            if (operation instanceof GeometryOperation) {
+                prefixGeometry = prefixGeometry.then((GeometryOperation) operation);
+            } else if (i < firstLayerIndex) {
+                // 已在解码条带时处理
+            } else if (operation instanceof ColorOperation) {
+                applyColorInPlace(output, (ColorOperation) operation);
+            } else if (isLayer(operation)) {
+                drawLayer(canvas, operations, i, prefixGeometry, sourceWidth, sourceHeight,
+                    outputWidth / fullSize[0], outputHeight / fullSize[1]);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * 按条带解码原图区域，处理颜色后绘制到输出画布上
+     */
+    private static void drawSourceStrips(BitmapRegionDecoder decoder, Rect region, float scale,
+                                         Matrix sourceToOutput, List<EditOperation> leadingOperations,
+                                         Canvas canvas) {
+        // 解码时尽量用inSampleSize缩小，剩余的缩放在绘制时完成
+        int sampleSize = 1;
+        while (sampleSize * 2 <= 1 / scale) {
+            sampleSize *= 2;
+        }
+
+        int decodedWidth = Math.max(1, region.width() / sampleSize);
+        int stripRows = Math.max(sampleSize,
+            STRIP_BYTES / BYTES_PER_PIXEL / decodedWidth * sampleSize);
+        int overlap = STRIP_OVERLAP_ROWS * sampleSize;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        int[] pixels = null;
+
+        for (int top = region.top; top < region.bottom; top += stripRows) {
+            int bottom = Math.min(region.bottom, top + stripRows);
+            Rect decodeRect = new Rect(region.left, Math.max(region.top, top - overlap),
+                region.right, Math.min(region.bottom, bottom + overlap));
+
+            Bitmap strip = decoder.decodeRegion(decodeRect, options);
+            if (strip == null) {
+                continue;
+            }
+
+            // 图层之前的颜色操作直接处理条带像素
+            for (EditOperation operation : leadingOperations) {
+                if (operation instanceof ColorOperation && !((ColorOperation) operation).isIdentity()) {
+                    int count = strip.getWidth() * strip.getHeight();
+                    if (pixels == null || pixels.length < count) {
+                        pixels = new int[count];
+                    }
+                    strip.getPixels(pixels, 0, strip.getWidth(), 0, 0, strip.getWidth(), strip.getHeight());
+                    ColorLut lut = ((ColorOperation) operation).getLut();
+                    lut.apply(pixels, 0, count);
+                    strip.setPixels(pixels, 0, strip.getWidth(), 0, 0, strip.getWidth(), strip.getHeight());
+                }
+            }
+
+            // 条带像素 -> 原图像素 -> 输出像素
+            Matrix stripMatrix = new Matrix();
+            stripMatrix.setScale(
+                (float) decodeRect.width() / strip.getWidth(),
+                (float) decodeRect.height() / strip.getHeight());
+            stripMatrix.postTranslate(decodeRect.left, decodeRect.top);
+            stripMatrix.postConcat(sourceToOutput);
+
+            // 只绘制条带本身负责的行，上下多解码的部分仅用于插值
+            RectF clip = new RectF(region.left, top, region.right, bottom);
+            sourceToOutput.mapRect(clip);
+
+            canvas.save();
+            canvas.clipRect(clip);
+            canvas.drawBitmap(strip, stripMatrix, paint);
+            canvas.restore();
+
+            strip.recycle();
+        }
+    }
+
+    /**
+     * 按行带在输出图片上直接应用颜色操作，不复制整张图片
+     */
+    private static void applyColorInPlace(Bitmap output, ColorOperation operation) {
+        if (operation.isIdentity()) {
+            return;
+        }
+        ColorLut lut = operation.getLut();
+        int width = output.getWidth();
+        int height = output.getHeight();
+        int bandRows = Math.max(1, BAND_PIXELS / width);
+        int[] pixels = new int[width * Math.min(bandRows, height)];
+
+        for (int top = 0; top < height; top += bandRows) {
+            int rows = Math.min(bandRows, height - top);
+            output.getPixels(pixels, 0, width, 0, top, width, rows);
+            lut.apply(pixels, 0, width * rows);
+            output.setPixels(pixels, 0, width, 0, top, width, rows);
+        }
+    }
+
+    /**
+     * 绘制文字或贴纸图层
+     * 图层按添加时的图片保存比例坐标，先换算到当时图片的像素坐标，
+     * 再经过之后所有几何操作的变换绘制到输出图片上
+     */
+    private static void drawLayer(Canvas canvas, List<EditOperation> operations, int index,
+                                  GeometryOperation prefixGeometry, int sourceWidth, int sourceHeight,
+                                  float outputScaleX, float outputScaleY) {
+        // 添加图层时图片的尺寸（按原图分辨率）
+        float[] frameSize = prefixGeometry.getOutputSize(sourceWidth, sourceHeight);
+
+        GeometryOperation suffixGeometry = GeometryOperation.identity();
+        for (int i = index + 1; i < operations.size(); i++) {
+            if (operations.get(i) instanceof GeometryOperation) {
+                suffixGeometry = suffixGeometry.then((GeometryOperation) operations.get(i));
+            }
+        }
+        Matrix frameToOutput = suffixGeometry.toMatrix(frameSize[0], frameSize[1]);
+        frameToOutput.postScale(outputScaleX, outputScaleY);
+
+        canvas.save();
+        canvas.concat(frameToOutput);
+        EditOperation operation = operations.get(index);
+        if (operation instanceof TextOperation) {
+            TextDrawUtils.drawTextLayers(canvas, frameSize[0], frameSize[1],
+                ((TextOperation) operation).getLayers());
+        } else if (operation instanceof StickerOperation) {
+            StickerDrawUtils.drawStickerLayers(canvas, frameSize[0], frameSize[1],
+                ((StickerOperation) operation).getLayers());
+        }
+        canvas.restore();
+    }
+
+    private static boolean isLayer(EditOperation operation) {
+        return operation instanceof TextOperation || operation instanceof StickerOperation;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newDecoder(String imagePath) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(imagePath);
+        }
+        return BitmapRegionDecoder.newInstance(imagePath, false);
+    }
+}
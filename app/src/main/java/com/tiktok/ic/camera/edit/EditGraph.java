@@ -0,0 +1,193 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 非破坏性编辑图
+ * 保存原图和按顺序排列的编辑操作列表，编辑结果在需要时从原图按顺序计算得到。
+ *
+ * 每一步的中间结果按内存预算缓存：修改第i个操作只会从第i步之前最近的缓存开始重新计算，
+ * 在末尾追加操作只需计算新增的一步。缓存超出预算时优先释放靠前的中间结果，
+ * 因为编辑总是发生在列表末尾。
+ *
+ * 返回的图片由编辑图持有，调用方不能释放；非线程安全，需要在同一线程（主线程）中使用
+ */
+public class EditGraph {
+
+    private final Bitmap source;
+    private final List<EditOperation> operations = new ArrayList<>();
+    // stages.get(i) 为前i个操作的结果，stages.get(0) 为原图，null表示未缓存
+    private final List<Bitmap> stages = new ArrayList<>();
+    // 中间结果缓存的内存预算（不含原图）
+    private final long cacheBudgetBytes;
+
+    public EditGraph(Bitmap source) {
+        this.source = source;
+        stages.add(source);
+        // 默认保留约两张图片大小的中间结果，足够覆盖最后一步及其前一步
+        cacheBudgetBytes = 2L * source.getByteCount();
+    }
+
+    public Bitmap getSource() {
+        return source;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public EditOperation get(int index) {
+        return operations.get(index);
+    }
+
+    public List<EditOperation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * 在末尾追加操作，已有的中间结果仍然有效
+     * 能与最后一个操作合并时（如连续的几何操作）直接替换最后一个操作，
+     * 从最后一个操作的输入重新计算一次，而不是在上一次的结果上再处理一遍
+     */
+    public void add(EditOperation operation) {
+        int last = operations.size() - 1;
+        if (last >= 0) {
+            EditOperation merged = operations.get(last).mergeWith(operation);
+            if (merged != null) {
+                set(last, merged);
+                return;
+            }
+        }
+        append(operation);
+    }
+
+    /**
+     * 在末尾追加操作，不尝试合并
+     */
+    void append(EditOperation operation) {
+        operations.add(operation);
+        stages.add(null);
+    }
+
+    /**
+     * 替换第index个操作，该操作之后的中间结果失效
+     */
+    public void set(int index, EditOperation operation) {
+        operations.set(index, operation);
+        for (int stage = index + 1; stage < stages.size(); stage++) {
+            releaseStage(stage);
+        }
+    }
+
+    /**
+     * 只保留前size个操作，之后的操作和中间结果全部丢弃
+     */
+    public void truncate(int size) {
+        while (operations.size() > size) {
+            int last = operations.size();
+            releaseStage(last);
+            stages.remove(last);
+            operations.remove(last - 1);
+        }
+    }
+
+    /**
+     * 清空所有操作，恢复到原图
+     */
+    public void clear() {
+        truncate(0);
+    }
+
+    /**
+     * 计算全部操作后的结果
+     */
+    public Bitmap render() {
+        return render(operations.size());
+    }
+
+    /**
+     * 计算前count个操作后的结果
+     * 从最近的已缓存结果开始，只计算之后的操作
+     *
+     * @param count 操作数量
+     * @return 编辑结果，由编辑图持有
+     */
+    public Bitmap render(int count) {
+        int start = count;
+        while (stages.get(start) == null) {
+            start--;
+        }
+
+        Bitmap current = stages.get(start);
+        for (int i = start; i < count; i++) {
+            Bitmap next = operations.get(i).apply(current);
+            if (next == null) {
+                next = current;
+            }
+            // 没有缓存的中间结果用完即释放
+            if (next != current && !isCached(current)) {
+                current.recycle();
+            }
+            current = next;
+            stages.set(i + 1, current);
+            trimCache(i + 1);
+        }
+        return current;
+    }
+
+    /**
+     * 图片是否为编辑图持有的原图或中间结果
+     */
+    public boolean isCached(Bitmap bitmap) {
+        return bitmap != null && stages.contains(bitmap);
+    }
+
+    /**
+     * 释放原图和全部中间结果
+     */
+    public void release() {
+        for (int stage = 1; stage < stages.size(); stage++) {
+            releaseStage(stage);
+        }
+        if (!source.isRecycled()) {
+            source.recycle();
+        }
+    }
+
+    /**
+     * 缓存超出预算时，从前往后释放中间结果，keepStage对应的结果始终保留
+     */
+    private void trimCache(int keepStage) {
+        long cachedBytes = 0;
+        for (int stage = 1; stage < stages.size(); stage++) {
+            Bitmap bitmap = stages.get(stage);
+            if (bitmap != null && bitmap != source && stages.indexOf(bitmap) == stage) {
+                cachedBytes += bitmap.getByteCount();
+            }
+        }
+
+        for (int stage = 1; stage < stages.size() && cachedBytes > cacheBudgetBytes; stage++) {
+            Bitmap bitmap = stages.get(stage);
+            if (stage == keepStage || bitmap == null || bitmap == source) {
+                continue;
+            }
+            if (stages.lastIndexOf(bitmap) == stage) {
+                cachedBytes -= bitmap.getByteCount();
+            }
+            releaseStage(stage);
+        }
+    }
+
+    private void releaseStage(int stage) {
+        Bitmap bitmap = stages.get(stage);
+        stages.set(stage, null);
+        // 操作没有改变图片时，相邻步骤会引用同一张图片
+        if (bitmap != null && bitmap != source && !stages.contains(bitmap) && !bitmap.isRecycled()) {
+            bitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.tiktok.ic.camera.edit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 编辑历史（撤销/重做）
+ * 每一步只保存与上一次提交相比发生变化的操作记录（被替换的旧操作和新操作），不保存像素。
+ * 撤销、重做时只改动 {@link EditGraph} 操作列表的末尾，图片由EditGraph从最近的缓存结果重新计算。
+ *
+ * 历史记录按内存预算保留，超出预算时从最早的一步开始丢弃：
+ * 被丢弃的步骤仍然保留在EditGraph中，只是不能再撤销
+ */
+public class EditHistory {
+
+    // 内存预算，操作记录通常只有几KB，足够保留数百步
+    private static final long BUDGET_BYTES = 4L * 1024 * 1024;
+
+    private final EditGraph graph;
+    // 最近一次提交时EditGraph的操作列表
+    private List<EditOperation> committed = new ArrayList<>();
+    // 队尾为最近的一步
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    // 队首为下一次重做的一步
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private long usedBytes;
+
+    public EditHistory(EditGraph graph) {
+        this.graph = graph;
+        committed = new ArrayList<>(graph.getOperations());
+    }
+
+    /**
+     * 将上一次提交之后EditGraph的变化记录为一步
+     * 新的一步会清空重做记录；没有变化时不记录
+     */
+    public void commit() {
+        List<EditOperation> current = graph.getOperations();
+        int start = commonPrefixLength(committed, current);
+        if (start == committed.size() && start == current.size()) {
+            return;
+        }
+
+        Step step = new Step(start,
+            new ArrayList<>(committed.subList(start, committed.size())),
+            new ArrayList<>(current.subList(start, current.size())));
+        undoSteps.addLast(step);
+        usedBytes += step.bytes;
+        committed = new ArrayList<>(current);
+
+        for (Step redoStep : redoSteps) {
+            usedBytes -= redoStep.bytes;
+        }
+        redoSteps.clear();
+        trim();
+    }
+
+    /**
+     * 放弃上一次提交之后EditGraph的所有变化
+     */
+    public void discardUncommitted() {
+        restore(committed);
+    }
+
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * 撤销最近的一步，未提交的变化会被一起放弃
+     *
+     * @return 是否撤销成功
+     */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        Step step = undoSteps.pollLast();
+        List<EditOperation> target = new ArrayList<>(committed.subList(0, step.start));
+        target.addAll(step.removed);
+        restore(target);
+        redoSteps.addFirst(step);
+        return true;
+    }
+
+    /**
+     * 重做最近撤销的一步，未提交的变化会被一起放弃
+     *
+     * @return 是否重做成功
+     */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        Step step = redoSteps.pollFirst();
+        List<EditOperation> target = new ArrayList<>(committed.subList(0, step.start));
+        target.addAll(step.added);
+        restore(target);
+        undoSteps.addLast(step);
+        return true;
+    }
+
+    /**
+     * 将EditGraph恢复为指定的操作列表，只改动不同的部分，相同前缀的缓存结果保留
+     */
+    private void restore(List<EditOperation> target) {
+        int start = commonPrefixLength(graph.getOperations(), target);
+        graph.truncate(start);
+        for (int i = start; i < target.size(); i++) {
+            graph.append(target.get(i));
+        }
+        committed = new ArrayList<>(target);
+    }
+
+    /**
+     * 超出预算时先丢弃最早的撤销记录，仍然超出时丢弃最远的重做记录
+     */
+    private void trim() {
+        while (usedBytes > BUDGET_BYTES && !undoSteps.isEmpty()) {
+            usedBytes -= undoSteps.pollFirst().bytes;
+        }
+        while (usedBytes > BUDGET_BYTES && !redoSteps.isEmpty()) {
+            usedBytes -= redoSteps.pollLast().bytes;
+        }
+    }
+
+    private static int commonPrefixLength(List<EditOperation> a, List<EditOperation> b) {
+        int length = Math.min(a.size(), b.size());
+        int i = 0;
+        while (i < length && a.get(i) == b.get(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 历史记录中的一步：从start开始，removed被替换为added
+     */
+    private static class Step {
+        final int start;
+        final List<EditOperation> removed;
+        final List<EditOperation> added;
+        final long bytes;
+
+        Step(int start, List<EditOperation> removed, List<EditOperation> added) {
+            this.start = start;
+            this.removed = removed;
+            this.added = added;
+            long total = 0;
+            for (EditOperation operation : removed) {
+                total += operation.estimateBytes();
+            }
+            for (EditOperation operation : added) {
+                total += operation.estimateBytes();
+            }
+            this.bytes = total;
+        }
+    }
+}
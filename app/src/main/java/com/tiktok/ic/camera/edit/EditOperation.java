@@ -0,0 +1,36 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+
+/**
+ * 编辑操作
+ * 每个操作只记录参数，由 {@link EditGraph} 按顺序作用到原图上得到编辑结果
+ */
+public interface EditOperation {
+    
+    /**
+     * 将操作应用到输入图片
+     * 不能修改或释放输入图片；操作不改变图片时可以直接返回输入图片
+     * 
+     * @param input 上一步的结果
+     * @return 本步的结果
+     */
+    Bitmap apply(Bitmap input);
+    
+    /**
+     * 尝试与紧接在后面的操作合并为一个操作
+     * 
+     * @param next 后一个操作
+     * @return 合并后的操作，不能合并时返回null
+     */
+    default EditOperation mergeWith(EditOperation next) {
+        return null;
+    }
+    
+    /**
+     * 操作记录本身占用的内存估计（字节），用于撤销历史的内存预算
+     */
+    default long estimateBytes() {
+        return 64;
+    }
+}
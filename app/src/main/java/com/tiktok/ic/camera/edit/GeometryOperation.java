@@ -0,0 +1,232 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+
+import com.tiktok.ic.camera.utils.RightAngleTransform;
+
+/**
+ * 几何操作（旋转、翻转、裁剪）
+ * 连续的几何编辑累积为一个方向变换加一个裁剪区域，只对输入图片重采样一次，
+ * 多次旋转、翻转、裁剪不会反复分配整张图片，也不会因为多次插值损失画质。
+ *
+ * 方向变换为先水平翻转（可选）再顺时针旋转若干个90度；
+ * 裁剪区域按变换后图片宽高的比例（0-1）保存，与图片分辨率无关
+ */
+public class GeometryOperation implements EditOperation {
+    
+    private static final RectF FULL_RECT = new RectF(0, 0, 1, 1);
+    
+    private final int quarterTurns; // 顺时针旋转90度的次数，0-3
+    private final boolean mirrored; // 旋转前是否水平翻转
+    private final RectF cropRect;
+    
+    private GeometryOperation(int quarterTurns, boolean mirrored, RectF cropRect) {
+        this.quarterTurns = ((quarterTurns % 4) + 4) % 4;
+        this.mirrored = mirrored;
+        this.cropRect = new RectF(cropRect);
+    }
+    
+    /**
+     * 不改变图片的几何操作，用于累积合并多个几何操作
+     */
+    public static GeometryOperation identity() {
+        return new GeometryOperation(0, false, FULL_RECT);
+    }
+    
+    /**
+     * 旋转操作，角度需要为90度的整数倍（正数为顺时针）
+     */
+    public static GeometryOperation rotate(int angle) {
+        if (angle % 90 != 0) {
+            throw new IllegalArgumentException("Only right-angle rotations are supported: " + angle);
+        }
+        return new GeometryOperation(angle / 90, false, FULL_RECT);
+    }
+    
+    /**
+     * 水平翻转操作
+     */
+    public static GeometryOperation flipHorizontal() {
+        return new GeometryOperation(0, true, FULL_RECT);
+    }
+    
+    /**
+     * 垂直翻转操作（等价于水平翻转后旋转180度）
+     */
+    public static GeometryOperation flipVertical() {
+        return new GeometryOperation(2, true, FULL_RECT);
+    }
+    
+    /**
+     * 根据像素区域创建裁剪操作
+     * 
+     * @param x 区域左上角X坐标
+     * @param y 区域左上角Y坐标
+     * @param width 区域宽度
+     * @param height 区域高度
+     * @param imageWidth 图片宽度
+     * @param imageHeight 图片高度
+     * @return 裁剪操作
+     */
+    public static GeometryOperation crop(int x, int y, int width, int height, 
+                                         int imageWidth, int imageHeight) {
+        return new GeometryOperation(0, false, new RectF(
+            (float) x / imageWidth,
+            (float) y / imageHeight,
+            (float) (x + width) / imageWidth,
+            (float) (y + height) / imageHeight
+        ));
+    }
+    
+    /**
+     * 是否不改变图片
+     */
+    public boolean isIdentity() {
+        return quarterTurns == 0 && !mirrored && cropRect.equals(FULL_RECT);
+    }
+    
+    /**
+     * 与之后的几何操作合并为一个操作
+     * 
+     * @param next 在本操作之后执行的几何操作
+     * @return 效果等同于先执行本操作再执行next的操作
+     */
+    public GeometryOperation then(GeometryOperation next) {
+        // 本操作的裁剪区域经过next的方向变换，得到新方向下的区域
+        RectF rect = next.mapOrientation(cropRect);
+        // next的裁剪区域相对于本操作裁剪后的图片，换算到整张图片
+        rect = new RectF(
+            rect.left + next.cropRect.left * rect.width(),
+            rect.top + next.cropRect.top * rect.height(),
+            rect.left + next.cropRect.right * rect.width(),
+            rect.top + next.cropRect.bottom * rect.height()
+        );
+        // R^b F^g R^a F^f = R^(b ± a) F^(f xor g)，翻转会使前面的旋转方向相反
+        int turns = next.quarterTurns + (next.mirrored ? -quarterTurns : quarterTurns);
+        return new GeometryOperation(turns, mirrored != next.mirrored, rect);
+    }
+    
+    /**
+     * 输出图片对应的输入图片区域（按输入图片宽高的比例）
+     */
+    public RectF getSourceRect() {
+        return mapOrientationInverse(cropRect);
+    }
+    
+    /**
+     * 计算输出图片的尺寸
+     * 
+     * @param inputWidth 输入图片宽度
+     * @param inputHeight 输入图片高度
+     * @return 输出图片的 [宽度, 高度]
+     */
+    public float[] getOutputSize(float inputWidth, float inputHeight) {
+        boolean swapSize = quarterTurns % 2 != 0;
+        float orientedWidth = swapSize ? inputHeight : inputWidth;
+        float orientedHeight = swapSize ? inputWidth : inputHeight;
+        return new float[]{cropRect.width() * orientedWidth, cropRect.height() * orientedHeight};
+    }
+    
+    /**
+     * 从输入图片坐标到输出图片坐标的变换矩阵
+     * 
+     * @param inputWidth 输入图片宽度
+     * @param inputHeight 输入图片高度
+     * @return 变换矩阵
+     */
+    public Matrix toMatrix(float inputWidth, float inputHeight) {
+        Matrix matrix = new Matrix();
+        float width = inputWidth;
+        float height = inputHeight;
+        if (mirrored) {
+            matrix.postScale(-1, 1);
+            matrix.postTranslate(width, 0);
+        }
+        for (int i = 0; i < quarterTurns; i++) {
+            // 顺时针旋转90度：(x, y) -> (height - y, x)
+            matrix.postRotate(90);
+            matrix.postTranslate(height, 0);
+            float temp = width;
+            width = height;
+            height = temp;
+        }
+        matrix.postTranslate(-cropRect.left * width, -cropRect.top * height);
+        return matrix;
+    }
+    
+    @Override
+    public EditOperation mergeWith(EditOperation next) {
+        if (next instanceof GeometryOperation) {
+            return then((GeometryOperation) next);
+        }
+        return null;
+    }
+    
+    @Override
+    public Bitmap apply(Bitmap input) {
+        if (isIdentity()) {
+            return input;
+        }
+        
+        int imageWidth = input.getWidth();
+        int imageHeight = input.getHeight();
+        
+        // 裁剪区域换算回输入图片的坐标，先裁剪再变换，只处理需要的像素
+        RectF source = mapOrientationInverse(cropRect);
+        int x = Math.max(0, Math.round(source.left * imageWidth));
+        int y = Math.max(0, Math.round(source.top * imageHeight));
+        int width = Math.min(imageWidth, Math.round(source.right * imageWidth)) - x;
+        int height = Math.min(imageHeight, Math.round(source.bottom * imageHeight)) - y;
+        if (width <= 0 || height <= 0) {
+            return input;
+        }
+        
+        // 直角变换只是像素重排，直接搬移像素，不需要插值
+        return RightAngleTransform.transform(input, x, y, width, height, quarterTurns, mirrored);
+    }
+    
+    /**
+     * 将输入图片上的区域（比例坐标）映射到方向变换后的图片上
+     */
+    private RectF mapOrientation(RectF rect) {
+        RectF result = new RectF(rect);
+        if (mirrored) {
+            result = flip(result);
+        }
+        for (int i = 0; i < quarterTurns; i++) {
+            result = rotateClockwise(result);
+        }
+        return result;
+    }
+    
+    /**
+     * 将方向变换后图片上的区域（比例坐标）映射回输入图片
+     */
+    private RectF mapOrientationInverse(RectF rect) {
+        RectF result = new RectF(rect);
+        for (int i = 0; i < quarterTurns; i++) {
+            result = rotateCounterClockwise(result);
+        }
+        if (mirrored) {
+            result = flip(result);
+        }
+        return result;
+    }
+    
+    // (u, v) -> (1 - u, v)
+    private static RectF flip(RectF rect) {
+        return new RectF(1 - rect.right, rect.top, 1 - rect.left, rect.bottom);
+    }
+    
+    // (u, v) -> (1 - v, u)
+    private static RectF rotateClockwise(RectF rect) {
+        return new RectF(1 - rect.bottom, rect.left, 1 - rect.top, rect.right);
+    }
+    
+    // (u, v) -> (v, 1 - u)
+    private static RectF rotateCounterClockwise(RectF rect) {
+        return new RectF(rect.top, 1 - rect.right, rect.bottom, 1 - rect.left);
+    }
+}
@@ -0,0 +1,42 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+
+import com.tiktok.ic.camera.utils.StickerDrawUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 贴纸操作
+ * 保存确认时各贴纸的位置、大小和层级，绘制时与图片分辨率无关
+ */
+public class StickerOperation implements EditOperation {
+    
+    private final List<StickerDrawUtils.StickerLayer> layers;
+    
+    public StickerOperation(List<StickerDrawUtils.StickerLayer> layers) {
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+    }
+    
+    public List<StickerDrawUtils.StickerLayer> getLayers() {
+        return layers;
+    }
+    
+    @Override
+    public Bitmap apply(Bitmap input) {
+        if (layers.isEmpty()) {
+            return input;
+        }
+        Bitmap result = input.copy(Bitmap.Config.ARGB_8888, true);
+        StickerDrawUtils.drawStickerLayers(result, layers);
+        return result;
+    }
+    
+    @Override
+    public long estimateBytes() {
+        // drawable的图片数据与资源共享，只计算图层本身
+        return 64 + layers.size() * 64L;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tiktok.ic.camera.edit;
+
+import android.graphics.Bitmap;
+
+import com.tiktok.ic.camera.utils.TextDrawUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 文字操作
+ * 保存确认时各文字视图的位置和样式，绘制时与图片分辨率无关
+ */
+public class TextOperation implements EditOperation {
+    
+    private final List<TextDrawUtils.TextLayer> layers;
+    
+    public TextOperation(List<TextDrawUtils.TextLayer> layers) {
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+    }
+    
+    public List<TextDrawUtils.TextLayer> getLayers() {
+        return layers;
+    }
+    
+    @Override
+    public Bitmap apply(Bitmap input) {
+        if (layers.isEmpty()) {
+            return input;
+        }
+        Bitmap result = input.copy(Bitmap.Config.ARGB_8888, true);
+        TextDrawUtils.drawTextLayers(result, layers);
+        return result;
+    }
+    
+    @Override
+    public long estimateBytes() {
+        long bytes = 64;
+        for (TextDrawUtils.TextLayer layer : layers) {
+            bytes += 64 + layer.text.length() * 2L;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,22 @@
+package com.tiktok.ic.camera.media;
+
+/**
+ * 媒体库中的一个相册（同一BUCKET_ID下的图片）
+ */
+public class MediaAlbum {
+
+    public final long bucketId;
+    public final String name;
+    public final int count;
+    // 相册中最新的一张图片，作为封面
+    public final long coverId;
+    public final String coverPath;
+
+    public MediaAlbum(long bucketId, String name, int count, long coverId, String coverPath) {
+        this.bucketId = bucketId;
+        this.name = name;
+        this.count = count;
+        this.coverId = coverId;
+        this.coverPath = coverPath;
+    }
+}
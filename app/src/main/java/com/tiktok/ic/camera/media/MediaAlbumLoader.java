@@ -0,0 +1,138 @@
+package com.tiktok.ic.camera.media;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相册列表加载器
+ * 在后台统计每个相册（BUCKET_ID）的名称、图片数量和封面，不保存相册中每张图片的路径；
+ * 相册中的图片在打开相册时再用 {@link MediaPageLoader#forBucket} 加载。
+ *
+ * 应用无法向MediaStore提交GROUP BY或COUNT(*)查询，这里只查询BUCKET_ID这一列并在本地计数，
+ * 名称和封面路径只在遇到新相册时读取一次。
+ * 一个加载器只能启动一次，界面销毁或重新加载前需要调用 {@link #cancel}
+ */
+public class MediaAlbumLoader {
+
+    /**
+     * 加载完成回调，在主线程调用
+     */
+    public interface Listener {
+        /**
+         * @param albums 按名称排序的相册列表，查询失败时为空列表
+         */
+        void onAlbumsLoaded(List<MediaAlbum> albums);
+    }
+
+    private static final Uri IMAGES_URI = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    private static final String[] PROJECTION = {
+            MediaStore.Images.Media.BUCKET_ID,
+            MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+            MediaStore.Images.Media._ID,
+            MediaStore.Images.Media.DATA
+    };
+    // 每个相册第一条记录即为最新的图片
+    private static final String SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " DESC, "
+            + MediaStore.Images.Media._ID + " DESC";
+
+    private final ContentResolver contentResolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean cancelled;
+    private boolean started;
+
+    public MediaAlbumLoader(ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+    }
+
+    /**
+     * 在后台线程开始加载
+     */
+    public void start(Listener listener) {
+        if (started) {
+            throw new IllegalStateException("MediaAlbumLoader can only be started once");
+        }
+        started = true;
+        Thread thread = new Thread(() -> {
+            List<MediaAlbum> albums = queryAlbums();
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    listener.onAlbumsLoaded(albums);
+                }
+            });
+        }, "media-album-loader");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * 停止加载，之后不会再回调Listener
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private List<MediaAlbum> queryAlbums() {
+        // 按第一次出现的顺序保存相册，count在遍历时累加
+        Map<Long, AlbumCounter> counters = new HashMap<>();
+        List<AlbumCounter> order = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(IMAGES_URI, PROJECTION, null, null, SORT_ORDER)) {
+            if (cursor != null) {
+                int bucketIdColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_ID);
+                int bucketNameColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_DISPLAY_NAME);
+                int idColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+                int dataColumnIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
+
+                while (!cancelled && cursor.moveToNext()) {
+                    long bucketId = cursor.getLong(bucketIdColumnIndex);
+                    AlbumCounter counter = counters.get(bucketId);
+                    if (counter == null) {
+                        counter = new AlbumCounter(bucketId,
+                                cursor.getString(bucketNameColumnIndex),
+                                cursor.getLong(idColumnIndex),
+                                cursor.getString(dataColumnIndex));
+                        counters.put(bucketId, counter);
+                        order.add(counter);
+                    }
+                    counter.count++;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        List<MediaAlbum> albums = new ArrayList<>(order.size());
+        for (AlbumCounter counter : order) {
+            albums.add(new MediaAlbum(counter.bucketId, counter.name, counter.count,
+                    counter.coverId, counter.coverPath));
+        }
+        Collections.sort(albums, Comparator.comparing(
+                (MediaAlbum album) -> album.name, Comparator.nullsLast(Comparator.naturalOrder())));
+        return albums;
+    }
+
+    private static class AlbumCounter {
+        final long bucketId;
+        final String name;
+        final long coverId;
+        final String coverPath;
+        int count;
+
+        AlbumCounter(long bucketId, String name, long coverId, String coverPath) {
+            this.bucketId = bucketId;
+            this.name = name;
+            this.coverId = coverId;
+            this.coverPath = coverPath;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tiktok.ic.camera.media;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 媒体库变化跟踪器
+ * 通过ContentObserver监听图片的增删改，只查询上次检查之后变化的记录，交给界面增量更新 {@link MediaIndex}。
+ *
+ * Android 11及以上按存储卷记录MediaStore的generation（{@link MediaStore#getGeneration}），
+ * 查询GENERATION_MODIFIED更大的记录；更低版本退化为按DATE_ADDED和DATE_MODIFIED查询。
+ * 删除无法通过上述列发现：收到删除通知（或系统不提供通知类型）时额外查询一次全部ID，由索引比较删除的记录。
+ *
+ * 需要在开始加载图片之前调用 {@link #start}，加载期间发生的变化也会被补上；界面销毁时调用 {@link #stop}
+ */
+public class MediaChangeTracker {
+
+    /**
+     * 变化回调，在主线程调用
+     */
+    public interface Listener {
+        /**
+         * @param changed 新增或修改的图片
+         * @param currentIds 媒体库中当前全部图片的ID，没有检查删除时为null
+         */
+        void onMediaChanged(List<MediaItem> changed, long[] currentIds);
+    }
+
+    // 连续的通知合并为一次查询
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private static final Uri IMAGES_URI = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    private static final String[] ID_PROJECTION = {MediaStore.Images.Media._ID};
+
+    private final Context context;
+    private final ContentResolver contentResolver;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "media-change-tracker"));
+    private final ContentObserver observer = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange, Collection<Uri> uris, int flags) {
+            // Android 11及以上提供通知类型，只有删除时才需要比较ID
+            onMediaStoreChanged((flags & ContentResolver.NOTIFY_DELETE) != 0 || flags == 0);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            onMediaStoreChanged(true);
+        }
+    };
+    private final Runnable checkRunnable = this::scheduleCheck;
+
+    // 以下状态只在主线程访问
+    private boolean started;
+    private boolean stopped;
+    private boolean deletionPending;
+
+    // 以下状态只在executor线程访问
+    // 存储卷名称 -> 上次检查时的generation
+    private final Map<String, Long> generations = new HashMap<>();
+    // 不支持generation时，上次检查开始的时间（秒）
+    private long lastCheckSeconds;
+
+    public MediaChangeTracker(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.contentResolver = this.context.getContentResolver();
+        this.listener = listener;
+    }
+
+    /**
+     * 记录当前的generation并开始监听
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.execute(this::recordBaseline);
+        contentResolver.registerContentObserver(IMAGES_URI, true, observer);
+    }
+
+    /**
+     * 停止监听，之后不会再回调Listener
+     */
+    public void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        mainHandler.removeCallbacks(checkRunnable);
+        if (started) {
+            contentResolver.unregisterContentObserver(observer);
+        }
+        executor.shutdownNow();
+    }
+
+    private void onMediaStoreChanged(boolean checkDeletion) {
+        if (stopped) {
+            return;
+        }
+        deletionPending |= checkDeletion;
+        mainHandler.removeCallbacks(checkRunnable);
+        mainHandler.postDelayed(checkRunnable, DEBOUNCE_MILLIS);
+    }
+
+    private void scheduleCheck() {
+        if (stopped) {
+            return;
+        }
+        boolean checkDeletion = deletionPending;
+        deletionPending = false;
+        executor.execute(() -> {
+            List<MediaItem> changed = queryChanged();
+            long[] currentIds = checkDeletion ? queryIds() : null;
+            if (changed.isEmpty() && currentIds == null) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (!stopped) {
+                    listener.onMediaChanged(changed, currentIds);
+                }
+            });
+        });
+    }
+
+    private void recordBaseline() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            for (String volumeName : MediaStore.getExternalVolumeNames(context)) {
+                generations.put(volumeName, MediaStore.getGeneration(context, volumeName));
+            }
+        } else {
+            lastCheckSeconds = System.currentTimeMillis() / 1000;
+        }
+    }
+
+    private List<MediaItem> queryChanged() {
+        List<MediaItem> changed = new ArrayList<>();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            for (String volumeName : MediaStore.getExternalVolumeNames(context)) {
+                // 新挂载的存储卷从0开始，其中的图片全部视为新增
+                Long lastGeneration = generations.get(volumeName);
+                long generation = MediaStore.getGeneration(context, volumeName);
+                queryItems(MediaStore.Images.Media.getContentUri(volumeName),
+                        MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?",
+                        String.valueOf(lastGeneration == null ? 0 : lastGeneration), changed);
+                generations.put(volumeName, generation);
+            }
+        } else {
+            // 复制来的文件DATE_MODIFIED可能很早，新增的图片用DATE_ADDED判断；
+            // 两列都精确到秒，边界上的一秒会重复查询一次，由索引去重
+            long checkSeconds = System.currentTimeMillis() / 1000;
+            queryItems(IMAGES_URI, MediaStore.Images.Media.DATE_ADDED + " >= ? OR "
+                    + MediaStore.Images.Media.DATE_MODIFIED + " >= ?",
+                    String.valueOf(lastCheckSeconds), changed);
+            lastCheckSeconds = checkSeconds;
+        }
+        return changed;
+    }
+
+    /**
+     * 查询满足selection的图片，selection中的每个参数都使用selectionArg
+     */
+    private void queryItems(Uri uri, String selection, String selectionArg, List<MediaItem> out) {
+        String[] selectionArgs = new String[selection.length() - selection.replace("?", "").length()];
+        Arrays.fill(selectionArgs, selectionArg);
+        Bundle queryArgs = new Bundle();
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+        queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+        try (Cursor cursor = contentResolver.query(uri, MediaItem.PROJECTION, queryArgs, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                out.add(MediaItem.fromCursor(cursor));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 只查询ID一列，用于发现被删除的图片
+     */
+    private long[] queryIds() {
+        try (Cursor cursor = contentResolver.query(IMAGES_URI, ID_PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                return null;
+            }
+            long[] ids = new long[cursor.getCount()];
+            int count = 0;
+            while (count < ids.length && cursor.moveToNext()) {
+                ids[count++] = cursor.getLong(0);
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,664 @@
+package com.tiktok.ic.camera.media;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存中的图片索引
+ * 按加入时间从新到旧保存图片，并按ID查找，
+ * 分页加载的结果追加到末尾，媒体库变化时按ID插入、更新或删除单条记录，不需要重新查询和排序。
+ *
+ * 按列保存：每一列是一个基本类型数组，相册名称和ID保存在去重的相册表中，每行只保存相册序号；
+ * 路径以UTF-8依次写入同一个字节数组，读取时才转换为String。
+ * 5万张图片的索引只占几MB，而且不产生每张图片一个对象的开销。
+ *
+ * 界面的适配器持有 {@link #snapshot} 得到的只读快照，按位置直接读取ID和路径。
+ * 快照与索引共用各列的数组，不复制数据：追加的行和路径写在快照的范围之外，快照看不到；
+ * 只有修改快照范围内的行（插入、删除、移动、整理路径）时，索引才先复制一份各列再修改（写时复制）。
+ * 因此分页追加时每页取一次快照不产生复制，媒体库变化时每批变化最多复制一次。
+ * 只在主线程使用（快照可以交给其他线程只读使用）
+ */
+public class MediaIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int INITIAL_BLOB_BYTES = 16 * 1024;
+
+    // 每行一个元素的列
+    private int size;
+    private long[] ids = new long[0];
+    private long[] datesAdded = new long[0];
+    private int[] buckets = new int[0];
+    private int[] widths = new int[0];
+    private int[] heights = new int[0];
+    // 旋转角度除以90
+    private byte[] orientations = new byte[0];
+    private long[] sizes = new long[0];
+    private int[] pathOffsets = new int[0];
+    private int[] pathLengths = new int[0];
+
+    // 路径数据，删除或更新的行留下的空间在超过一半时整理
+    private byte[] pathBlob = new byte[0];
+    private int pathBlobLength;
+    private int pathGarbage;
+
+    // 相册表，只在末尾追加，快照与索引共用
+    private int bucketCount;
+    private String[] bucketNames = new String[0];
+    private long[] bucketIds = new long[0];
+    private final Map<Long, Integer> bucketIndices = new HashMap<>();
+
+    // 按ID排序的查找表：ID -> 加入时间，再由(加入时间, ID)二分得到行号
+    // 快照不共用查找表，第一次按ID查找时才生成
+    private int lookupSize;
+    private long[] lookupIds = new long[0];
+    private long[] lookupDates = new long[0];
+
+    // 按年月的分段，索引修改后在下次读取时重新生成
+    private MediaSections sections;
+
+    // 是否为只读快照
+    private final boolean readOnly;
+    // 前sharedRows行的各列数组与快照共用，修改这些行之前需要先复制
+    private int sharedRows;
+
+    public MediaIndex() {
+        this.readOnly = false;
+    }
+
+    /**
+     * 只读快照，与source共用各列的数组
+     */
+    private MediaIndex(MediaIndex source) {
+        this.readOnly = true;
+        size = source.size;
+        ids = source.ids;
+        datesAdded = source.datesAdded;
+        buckets = source.buckets;
+        widths = source.widths;
+        heights = source.heights;
+        orientations = source.orientations;
+        sizes = source.sizes;
+        pathOffsets = source.pathOffsets;
+        pathLengths = source.pathLengths;
+        pathBlob = source.pathBlob;
+        pathBlobLength = source.pathBlobLength;
+        bucketCount = source.bucketCount;
+        bucketNames = source.bucketNames;
+        bucketIds = source.bucketIds;
+        lookupIds = null;
+        lookupDates = null;
+        sections = source.sections;
+    }
+
+    /**
+     * 追加分页加载的一页图片，已经存在的图片按更新处理
+     *
+     * @return 这一页是否全部是新图片并且依次追加在末尾；返回false时界面需要按整个索引刷新列表
+     */
+    public boolean addPage(List<MediaItem> page) {
+        checkWritable();
+        boolean appended = true;
+        for (MediaItem item : page) {
+            if (lookup(item.id) >= 0) {
+                update(item);
+                appended = false;
+            } else if (size == 0 || isBefore(size - 1, item.dateAdded, item.id)) {
+                insertRow(size, item);
+            } else {
+                insertRow(insertionPoint(item.dateAdded, item.id), item);
+                appended = false;
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * 插入新图片或替换同一ID的图片，保持排列顺序
+     */
+    public void update(MediaItem item) {
+        checkWritable();
+        int position = indexOf(item.id);
+        if (position >= 0) {
+            removeRow(position);
+        }
+        insertRow(insertionPoint(item.dateAdded, item.id), item);
+    }
+
+    /**
+     * 与 {@link #update} 相同，但图片没有变化时不修改索引
+     *
+     * @return 索引是否被修改
+     */
+    public boolean merge(MediaItem item) {
+        int position = indexOf(item.id);
+        if (position >= 0 && getItem(position).isSameAs(item)) {
+            return false;
+        }
+        update(item);
+        return true;
+    }
+
+    /**
+     * 删除不在ids中的图片
+     *
+     * @param ids 媒体库中当前全部图片的ID
+     * @return 被删除的图片
+     */
+    public List<MediaItem> retain(long[] ids) {
+        long[] existing = ids.clone();
+        Arrays.sort(existing);
+        return retainSorted(existing, existing.length);
+    }
+
+    /**
+     * 与 {@link #retain} 相同，ID已经排好序，不需要复制
+     *
+     * @param sortedIds 按从小到大排列的ID，可以有重复
+     * @param count sortedIds中有效的个数
+     */
+    List<MediaItem> retainSorted(long[] sortedIds, int count) {
+        checkWritable();
+        List<MediaItem> removed = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (Arrays.binarySearch(sortedIds, 0, count, this.ids[i]) < 0) {
+                removed.add(getItem(i));
+                pathGarbage += pathLengths[i];
+                continue;
+            }
+            if (kept != i) {
+                moveRow(i, kept);
+            }
+            kept++;
+        }
+        if (!removed.isEmpty()) {
+            sections = null;
+            size = kept;
+            retainLookup(sortedIds, count);
+            compactPathsIfNeeded();
+        }
+        return removed;
+    }
+
+    /**
+     * 按ID查找图片
+     *
+     * @return 图片，索引中没有时返回null
+     */
+    public MediaItem get(long id) {
+        int position = indexOf(id);
+        return position >= 0 ? getItem(position) : null;
+    }
+
+    /**
+     * 按ID查找图片所在的行
+     *
+     * @return 行号，索引中没有时返回-1
+     */
+    public int indexOf(long id) {
+        int lookupIndex = lookup(id);
+        if (lookupIndex < 0) {
+            return -1;
+        }
+        int position = insertionPoint(lookupDates[lookupIndex], id);
+        return position < size && ids[position] == id ? position : -1;
+    }
+
+    /**
+     * 排在最后的图片，索引为空时返回null
+     */
+    public MediaItem last() {
+        return size == 0 ? null : getItem(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空索引；已经取出的快照不受影响
+     */
+    public void clear() {
+        checkWritable();
+        sections = null;
+        size = 0;
+        // 换成新的数组，之后的写入不会覆盖快照中的数据
+        ids = new long[0];
+        datesAdded = new long[0];
+        buckets = new int[0];
+        widths = new int[0];
+        heights = new int[0];
+        orientations = new byte[0];
+        sizes = new long[0];
+        pathOffsets = new int[0];
+        pathLengths = new int[0];
+        sharedRows = 0;
+        pathBlob = new byte[0];
+        pathBlobLength = 0;
+        pathGarbage = 0;
+        lookupSize = 0;
+        bucketCount = 0;
+        bucketNames = new String[0];
+        bucketIds = new long[0];
+        bucketIndices.clear();
+    }
+
+    public long getId(int position) {
+        return ids[position];
+    }
+
+    public String getPath(int position) {
+        return new String(pathBlob, pathOffsets[position], pathLengths[position], StandardCharsets.UTF_8);
+    }
+
+    public long getBucketId(int position) {
+        return bucketIds[buckets[position]];
+    }
+
+    public String getBucketName(int position) {
+        return bucketNames[buckets[position]];
+    }
+
+    public long getDateAdded(int position) {
+        return datesAdded[position];
+    }
+
+    /**
+     * 取出一行的全部内容
+     */
+    public MediaItem getItem(int position) {
+        return new MediaItem(ids[position], getPath(position), getBucketId(position), getBucketName(position),
+                datesAdded[position], widths[position], heights[position], orientations[position] * 90,
+                sizes[position]);
+    }
+
+    /**
+     * 按年月划分的分段，用于快速滚动
+     */
+    public MediaSections getSections() {
+        if (sections == null) {
+            sections = MediaSections.build(this);
+        }
+        return sections;
+    }
+
+    /**
+     * 取出当前内容的只读快照，不复制数据；之后对索引的修改不会反映到快照中
+     * 快照可以交给其他线程只读使用，修改快照会抛出IllegalStateException
+     */
+    public MediaIndex snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        sharedRows = Math.max(sharedRows, size);
+        return new MediaIndex(this);
+    }
+
+    /**
+     * 用other的内容替换当前索引，other之后不能再使用
+     */
+    void replaceWith(MediaIndex other) {
+        checkWritable();
+        sections = null;
+        size = other.size;
+        ids = other.ids;
+        datesAdded = other.datesAdded;
+        buckets = other.buckets;
+        widths = other.widths;
+        heights = other.heights;
+        orientations = other.orientations;
+        sizes = other.sizes;
+        pathOffsets = other.pathOffsets;
+        pathLengths = other.pathLengths;
+        sharedRows = other.sharedRows;
+        pathBlob = other.pathBlob;
+        pathBlobLength = other.pathBlobLength;
+        pathGarbage = other.pathGarbage;
+        bucketCount = other.bucketCount;
+        bucketNames = other.bucketNames;
+        bucketIds = other.bucketIds;
+        bucketIndices.clear();
+        bucketIndices.putAll(other.bucketIndices);
+        lookupSize = other.lookupSize;
+        lookupIds = other.lookupIds;
+        lookupDates = other.lookupDates;
+    }
+
+    // ---- 供MediaIndexStore按列读写 ----
+
+    int getBucketCount() {
+        return bucketCount;
+    }
+
+    long getBucketIdAt(int bucketIndex) {
+        return bucketIds[bucketIndex];
+    }
+
+    String getBucketNameAt(int bucketIndex) {
+        return bucketNames[bucketIndex];
+    }
+
+    int getBucketIndex(int position) {
+        return buckets[position];
+    }
+
+    int getWidth(int position) {
+        return widths[position];
+    }
+
+    int getHeight(int position) {
+        return heights[position];
+    }
+
+    int getOrientation(int position) {
+        return orientations[position] * 90;
+    }
+
+    long getSize(int position) {
+        return sizes[position];
+    }
+
+    byte[] getPathBlob() {
+        return pathBlob;
+    }
+
+    int getPathOffset(int position) {
+        return pathOffsets[position];
+    }
+
+    int getPathLength(int position) {
+        return pathLengths[position];
+    }
+
+    /**
+     * 添加一个相册，返回相册序号
+     */
+    int addBucket(long bucketId, String bucketName) {
+        checkWritable();
+        Integer index = bucketIndices.get(bucketId);
+        if (index != null) {
+            return index;
+        }
+        index = bucketCount;
+        if (index == bucketIds.length) {
+            int newCapacity = Math.max(16, index * 2);
+            bucketIds = Arrays.copyOf(bucketIds, newCapacity);
+            bucketNames = Arrays.copyOf(bucketNames, newCapacity);
+        }
+        bucketIds[index] = bucketId;
+        bucketNames[index] = bucketName;
+        bucketCount++;
+        bucketIndices.put(bucketId, index);
+        return index;
+    }
+
+    /**
+     * 在末尾追加一行，调用方保证排列顺序，路径为pathBytes中从pathOffset开始的pathLength个UTF-8字节
+     */
+    void appendRow(long id, byte[] pathBytes, int pathOffset, int pathLength, int bucketIndex, long dateAdded,
+                   int width, int height, int orientation, long fileSize) {
+        checkWritable();
+        sections = null;
+        ensureCapacity(size + 1);
+        prepareWrite(size);
+        writeRow(size, id, pathBytes, pathOffset, pathLength, bucketIndex, dateAdded,
+                width, height, orientation, fileSize);
+        size++;
+        lookupInsert(id, dateAdded);
+    }
+
+    // ---- 行操作 ----
+
+    private void insertRow(int position, MediaItem item) {
+        sections = null;
+        ensureCapacity(size + 1);
+        prepareWrite(position);
+        int moved = size - position;
+        if (moved > 0) {
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            System.arraycopy(datesAdded, position, datesAdded, position + 1, moved);
+            System.arraycopy(buckets, position, buckets, position + 1, moved);
+            System.arraycopy(widths, position, widths, position + 1, moved);
+            System.arraycopy(heights, position, heights, position + 1, moved);
+            System.arraycopy(orientations, position, orientations, position + 1, moved);
+            System.arraycopy(sizes, position, sizes, position + 1, moved);
+            System.arraycopy(pathOffsets, position, pathOffsets, position + 1, moved);
+            System.arraycopy(pathLengths, position, pathLengths, position + 1, moved);
+        }
+        byte[] pathBytes = (item.path == null ? "" : item.path).getBytes(StandardCharsets.UTF_8);
+        writeRow(position, item.id, pathBytes, 0, pathBytes.length, addBucket(item.bucketId, item.bucketName),
+                item.dateAdded, item.width, item.height, item.orientation, item.size);
+        size++;
+        lookupInsert(item.id, item.dateAdded);
+    }
+
+    private void removeRow(int position) {
+        sections = null;
+        pathGarbage += pathLengths[position];
+        lookupRemove(ids[position]);
+        int moved = size - position - 1;
+        if (moved > 0) {
+            prepareWrite(position);
+            System.arraycopy(ids, position + 1, ids, position, moved);
+            System.arraycopy(datesAdded, position + 1, datesAdded, position, moved);
+            System.arraycopy(buckets, position + 1, buckets, position, moved);
+            System.arraycopy(widths, position + 1, widths, position, moved);
+            System.arraycopy(heights, position + 1, heights, position, moved);
+            System.arraycopy(orientations, position + 1, orientations, position, moved);
+            System.arraycopy(sizes, position + 1, sizes, position, moved);
+            System.arraycopy(pathOffsets, position + 1, pathOffsets, position, moved);
+            System.arraycopy(pathLengths, position + 1, pathLengths, position, moved);
+        }
+        size--;
+        compactPathsIfNeeded();
+    }
+
+    private void moveRow(int from, int to) {
+        prepareWrite(to);
+        ids[to] = ids[from];
+        datesAdded[to] = datesAdded[from];
+        buckets[to] = buckets[from];
+        widths[to] = widths[from];
+        heights[to] = heights[from];
+        orientations[to] = orientations[from];
+        sizes[to] = sizes[from];
+        pathOffsets[to] = pathOffsets[from];
+        pathLengths[to] = pathLengths[from];
+    }
+
+    private void writeRow(int position, long id, byte[] pathBytes, int pathOffset, int pathLength,
+                          int bucketIndex, long dateAdded, int width, int height, int orientation, long fileSize) {
+        ids[position] = id;
+        datesAdded[position] = dateAdded;
+        buckets[position] = bucketIndex;
+        widths[position] = width;
+        heights[position] = height;
+        orientations[position] = (byte) (orientation / 90);
+        sizes[position] = fileSize;
+
+        if (pathBlobLength + pathLength > pathBlob.length) {
+            pathBlob = Arrays.copyOf(pathBlob,
+                    Math.max(INITIAL_BLOB_BYTES, Math.max(pathBlob.length * 2, pathBlobLength + pathLength)));
+        }
+        System.arraycopy(pathBytes, pathOffset, pathBlob, pathBlobLength, pathLength);
+        pathOffsets[position] = pathBlobLength;
+        pathLengths[position] = pathLength;
+        pathBlobLength += pathLength;
+    }
+
+    /**
+     * 修改第position行及之后的行之前调用：这些行与快照共用时，先复制各列
+     * 追加在快照范围之外的行不需要复制
+     */
+    private void prepareWrite(int position) {
+        if (position >= sharedRows) {
+            return;
+        }
+        ids = Arrays.copyOf(ids, ids.length);
+        datesAdded = Arrays.copyOf(datesAdded, ids.length);
+        buckets = Arrays.copyOf(buckets, ids.length);
+        widths = Arrays.copyOf(widths, ids.length);
+        heights = Arrays.copyOf(heights, ids.length);
+        orientations = Arrays.copyOf(orientations, ids.length);
+        sizes = Arrays.copyOf(sizes, ids.length);
+        pathOffsets = Arrays.copyOf(pathOffsets, ids.length);
+        pathLengths = Arrays.copyOf(pathLengths, ids.length);
+        sharedRows = 0;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("MediaIndex snapshot is read-only");
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, Math.max(capacity, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, newCapacity);
+        datesAdded = Arrays.copyOf(datesAdded, newCapacity);
+        buckets = Arrays.copyOf(buckets, newCapacity);
+        widths = Arrays.copyOf(widths, newCapacity);
+        heights = Arrays.copyOf(heights, newCapacity);
+        orientations = Arrays.copyOf(orientations, newCapacity);
+        sizes = Arrays.copyOf(sizes, newCapacity);
+        pathOffsets = Arrays.copyOf(pathOffsets, newCapacity);
+        pathLengths = Arrays.copyOf(pathLengths, newCapacity);
+        // 扩容后的数组不再与快照共用
+        sharedRows = 0;
+    }
+
+    /**
+     * 已删除路径占用超过一半时按行重新排列路径数据
+     * 整理结果写入新的数组，快照仍然读取原来的路径数据
+     */
+    private void compactPathsIfNeeded() {
+        if (pathGarbage <= pathBlobLength / 2) {
+            return;
+        }
+        prepareWrite(0);
+        byte[] compacted = new byte[Math.max(INITIAL_BLOB_BYTES, pathBlobLength - pathGarbage)];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(pathBlob, pathOffsets[i], compacted, length, pathLengths[i]);
+            pathOffsets[i] = length;
+            length += pathLengths[i];
+        }
+        pathBlob = compacted;
+        pathBlobLength = length;
+        pathGarbage = 0;
+    }
+
+    // ---- 排序和查找 ----
+
+    /**
+     * 第position行是否排在(dateAdded, id)之前：按加入时间从新到旧，时间相同时按ID从大到小
+     */
+    private boolean isBefore(int position, long dateAdded, long id) {
+        if (datesAdded[position] != dateAdded) {
+            return datesAdded[position] > dateAdded;
+        }
+        return ids[position] > id;
+    }
+
+    /**
+     * 二分查找第一个不排在(dateAdded, id)之前的行
+     */
+    private int insertionPoint(long dateAdded, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (isBefore(mid, dateAdded, id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lookup(long id) {
+        if (readOnly) {
+            buildLookupIfNeeded();
+        }
+        int index = Arrays.binarySearch(lookupIds, 0, lookupSize, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * 快照第一次按ID查找时按行生成查找表
+     * 快照可能在多个线程中读取，生成过程加锁
+     */
+    private synchronized void buildLookupIfNeeded() {
+        if (lookupIds != null) {
+            return;
+        }
+        long[] sortedIds = Arrays.copyOf(ids, size);
+        Arrays.sort(sortedIds);
+        long[] sortedDates = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedDates[Arrays.binarySearch(sortedIds, ids[i])] = datesAdded[i];
+        }
+        lookupSize = size;
+        lookupDates = sortedDates;
+        lookupIds = sortedIds;
+    }
+
+    private void lookupInsert(long id, long dateAdded) {
+        int index = Arrays.binarySearch(lookupIds, 0, lookupSize, id);
+        if (index >= 0) {
+            lookupDates[index] = dateAdded;
+            return;
+        }
+        index = -index - 1;
+        if (lookupSize == lookupIds.length) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, lookupSize + (lookupSize >> 1));
+            lookupIds = Arrays.copyOf(lookupIds, newCapacity);
+            lookupDates = Arrays.copyOf(lookupDates, newCapacity);
+        }
+        System.arraycopy(lookupIds, index, lookupIds, index + 1, lookupSize - index);
+        System.arraycopy(lookupDates, index, lookupDates, index + 1, lookupSize - index);
+        lookupIds[index] = id;
+        lookupDates[index] = dateAdded;
+        lookupSize++;
+    }
+
+    private void lookupRemove(long id) {
+        int index = lookup(id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(lookupIds, index + 1, lookupIds, index, lookupSize - index - 1);
+        System.arraycopy(lookupDates, index + 1, lookupDates, index, lookupSize - index - 1);
+        lookupSize--;
+    }
+
+    /**
+     * 批量删除后从查找表中去掉不在existing中的ID，查找表仍保持有序
+     *
+     * @param existing 排好序的保留ID
+     * @param count existing中有效的个数
+     */
+    private void retainLookup(long[] existing, int count) {
+        int kept = 0;
+        for (int i = 0; i < lookupSize; i++) {
+            if (Arrays.binarySearch(existing, 0, count, lookupIds[i]) >= 0) {
+                lookupIds[kept] = lookupIds[i];
+                lookupDates[kept] = lookupDates[i];
+                kept++;
+            }
+        }
+        lookupSize = kept;
+    }
+}
@@ -0,0 +1,227 @@
+package com.tiktok.ic.camera.media;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 图片索引加载器
+ * 负责填充和维护一个 {@link MediaIndex}：
+ * 先读取 {@link MediaIndexStore} 中上次保存的索引并立即交给界面显示，
+ * 再用 {@link MediaPageLoader} 从MediaStore分页核对，新增和修改的记录合并进索引，核对结束后删除已不存在的记录；
+ * 没有本地索引时，分页加载的结果直接依次显示。
+ * 之后由 {@link MediaChangeTracker} 增量更新。每次加载完成或变化后在后台保存索引。
+ *
+ * 所有回调都在主线程调用；界面销毁时需要调用 {@link #cancel}
+ */
+public class MediaIndexLoader {
+
+    /**
+     * 索引变化回调，在主线程调用
+     */
+    public interface Listener {
+        /**
+         * 索引第一次有了内容（来自本地索引或MediaStore的第一页），界面可以开始显示
+         */
+        void onIndexLoaded();
+
+        /**
+         * 分页加载的图片依次追加在索引末尾
+         */
+        void onItemsAppended(List<MediaItem> items);
+
+        /**
+         * 索引中任意位置的图片发生了插入、修改或删除，界面需要按索引重新设置列表
+         *
+         * @param removed 被删除的图片
+         */
+        void onIndexChanged(List<MediaItem> removed);
+
+        /**
+         * 与MediaStore核对完成（包括媒体库为空或查询失败的情况）
+         */
+        void onLoadFinished();
+    }
+
+    private static final int INITIAL_SEEN_CAPACITY = 1024;
+
+    // 所有加载器共用一个线程读写本地索引，保证写入顺序
+    private static final ExecutorService STORE_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "media-index-store"));
+
+    private final Context context;
+    private final MediaIndex index;
+    private final Listener listener;
+    private final MediaIndexStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private MediaChangeTracker changeTracker;
+    private MediaPageLoader pageLoader;
+    // 核对期间从MediaStore看到的图片ID，核对结束后排序，删除索引中其余的记录；为null时不在核对中
+    private long[] seenIds;
+    private int seenCount;
+    private boolean indexLoaded;
+    private boolean cancelled;
+
+    public MediaIndexLoader(Context context, MediaIndex index, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.index = index;
+        this.listener = listener;
+        this.store = new MediaIndexStore(this.context);
+    }
+
+    /**
+     * 清空索引并开始加载
+     */
+    public void start() {
+        index.clear();
+        seenIds = new long[INITIAL_SEEN_CAPACITY];
+        seenCount = 0;
+
+        // 先开始监听，加载期间的变化也会补上
+        changeTracker = new MediaChangeTracker(context, this::onMediaChanged);
+        changeTracker.start();
+
+        STORE_EXECUTOR.execute(() -> {
+            MediaIndex cached = store.read();
+            mainHandler.post(() -> {
+                if (cancelled) {
+                    return;
+                }
+                if (!cached.isEmpty()) {
+                    index.replaceWith(cached);
+                    indexLoaded = true;
+                    listener.onIndexLoaded();
+                }
+                startPageLoader();
+            });
+        });
+    }
+
+    /**
+     * 停止加载和监听，之后不会再回调Listener
+     */
+    public void cancel() {
+        cancelled = true;
+        if (pageLoader != null) {
+            pageLoader.cancel();
+        }
+        if (changeTracker != null) {
+            changeTracker.stop();
+        }
+    }
+
+    private void startPageLoader() {
+        pageLoader = new MediaPageLoader(context.getContentResolver());
+        pageLoader.start(new MediaPageLoader.Listener() {
+            @Override
+            public void onPageLoaded(List<MediaItem> items, boolean firstPage) {
+                onPage(items);
+            }
+
+            @Override
+            public void onLoadFinished() {
+                onPagesFinished();
+            }
+        });
+    }
+
+    private void onPage(List<MediaItem> items) {
+        for (MediaItem item : items) {
+            addSeenId(item.id);
+        }
+        if (!indexLoaded) {
+            // 没有本地索引，第一页到达即显示
+            index.addPage(items);
+            indexLoaded = true;
+            listener.onIndexLoaded();
+            return;
+        }
+
+        // 没有本地索引时后续的页都排在末尾；有本地索引时逐条合并，只有内容变化才通知界面
+        if (isAppendable(items)) {
+            index.addPage(items);
+            listener.onItemsAppended(items);
+            return;
+        }
+        boolean changed = false;
+        for (MediaItem item : items) {
+            changed |= index.merge(item);
+        }
+        if (changed) {
+            listener.onIndexChanged(Collections.emptyList());
+        }
+    }
+
+    /**
+     * 这一页是否全是索引中没有的新图片，并且都排在索引末尾之后
+     */
+    private boolean isAppendable(List<MediaItem> items) {
+        MediaItem last = index.last();
+        for (MediaItem item : items) {
+            if (index.indexOf(item.id) >= 0 || (last != null && !last.isBefore(item))) {
+                return false;
+            }
+            last = item;
+        }
+        return true;
+    }
+
+    private void onPagesFinished() {
+        Arrays.sort(seenIds, 0, seenCount);
+        List<MediaItem> removed = index.retainSorted(seenIds, seenCount);
+        seenIds = null;
+        if (!removed.isEmpty()) {
+            listener.onIndexChanged(removed);
+        }
+        save();
+        listener.onLoadFinished();
+    }
+
+    private void onMediaChanged(List<MediaItem> changed, long[] currentIds) {
+        if (cancelled) {
+            return;
+        }
+        boolean modified = false;
+        for (MediaItem item : changed) {
+            modified |= index.merge(item);
+            // 核对期间新增的图片可能排在分页位置之前，不能在核对结束时被删除
+            if (seenIds != null) {
+                addSeenId(item.id);
+            }
+        }
+        List<MediaItem> removed = currentIds != null ? index.retain(currentIds) : new ArrayList<>();
+        if (!modified && removed.isEmpty()) {
+            return;
+        }
+        if (!indexLoaded) {
+            indexLoaded = true;
+            listener.onIndexLoaded();
+        } else {
+            listener.onIndexChanged(removed);
+        }
+        // 核对期间的变化在核对结束后一起保存
+        if (seenIds == null) {
+            save();
+        }
+    }
+
+    private void addSeenId(long id) {
+        if (seenCount == seenIds.length) {
+            seenIds = Arrays.copyOf(seenIds, seenCount * 2);
+        }
+        seenIds[seenCount++] = id;
+    }
+
+    private void save() {
+        MediaIndex snapshot = index.snapshot();
+        STORE_EXECUTOR.execute(() -> store.write(snapshot));
+    }
+}
@@ -0,0 +1,143 @@
+package com.tiktok.ic.camera.media;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 图片索引的本地持久化
+ * 把上次从MediaStore得到的图片列表保存在应用私有目录的一个二进制文件中，
+ * 冷启动时先从这里读出并立即显示，再在后台与MediaStore核对。
+ *
+ * 文件格式：魔数、版本、相册表，之后按 {@link MediaIndex} 的顺序逐行保存；
+ * 每行只保存相册在相册表中的序号，路径保存为UTF-8字节，与内存中的列式索引直接对应。
+ * 格式或版本不符、文件损坏时视为没有缓存。
+ * 读写都应在后台线程进行，同一进程中的读写互斥
+ */
+public class MediaIndexStore {
+
+    private static final String FILE_NAME = "media_index.bin";
+    private static final String TEMP_FILE_NAME = "media_index.tmp";
+
+    private static final int MAGIC = 0x4d494458; // "MIDX"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 同一进程中的所有实例共用同一个文件
+    private static final Object FILE_LOCK = new Object();
+
+    private final File directory;
+
+    public MediaIndexStore(Context context) {
+        this.directory = context.getApplicationContext().getFilesDir();
+    }
+
+    /**
+     * 读取保存的索引
+     *
+     * @return 按加入时间从新到旧排列的索引，没有缓存或读取失败时返回空索引
+     */
+    public MediaIndex read() {
+        synchronized (FILE_LOCK) {
+            File file = new File(directory, FILE_NAME);
+            if (!file.exists()) {
+                return new MediaIndex();
+            }
+            try (DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    return new MediaIndex();
+                }
+                MediaIndex index = new MediaIndex();
+                int bucketCount = input.readInt();
+                for (int i = 0; i < bucketCount; i++) {
+                    long bucketId = input.readLong();
+                    String bucketName = input.readBoolean() ? input.readUTF() : null;
+                    index.addBucket(bucketId, bucketName);
+                }
+
+                int count = input.readInt();
+                byte[] pathBuffer = new byte[256];
+                for (int i = 0; i < count; i++) {
+                    long id = input.readLong();
+                    int bucketIndex = input.readInt();
+                    long dateAdded = input.readLong();
+                    int width = input.readInt();
+                    int height = input.readInt();
+                    int orientation = input.readShort();
+                    long size = input.readLong();
+                    int pathLength = input.readUnsignedShort();
+                    if (bucketIndex < 0 || bucketIndex >= bucketCount) {
+                        return new MediaIndex();
+                    }
+                    if (pathLength > pathBuffer.length) {
+                        pathBuffer = new byte[pathLength];
+                    }
+                    input.readFully(pathBuffer, 0, pathLength);
+                    index.appendRow(id, pathBuffer, 0, pathLength, bucketIndex, dateAdded,
+                            width, height, orientation, size);
+                }
+                return index;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new MediaIndex();
+            }
+        }
+    }
+
+    /**
+     * 保存索引，先写入临时文件再替换，写入中途失败时保留原来的文件
+     *
+     * @param index 索引，写入期间不能被修改（可以传入 {@link MediaIndex#snapshot} 得到的快照）
+     */
+    public void write(MediaIndex index) {
+        synchronized (FILE_LOCK) {
+            File tempFile = new File(directory, TEMP_FILE_NAME);
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+
+                int bucketCount = index.getBucketCount();
+                output.writeInt(bucketCount);
+                for (int i = 0; i < bucketCount; i++) {
+                    String bucketName = index.getBucketNameAt(i);
+                    output.writeLong(index.getBucketIdAt(i));
+                    output.writeBoolean(bucketName != null);
+                    if (bucketName != null) {
+                        output.writeUTF(bucketName);
+                    }
+                }
+
+                // 路径直接写入索引中的UTF-8字节，不需要转换为String
+                byte[] pathBlob = index.getPathBlob();
+                output.writeInt(index.size());
+                for (int i = 0; i < index.size(); i++) {
+                    output.writeLong(index.getId(i));
+                    output.writeInt(index.getBucketIndex(i));
+                    output.writeLong(index.getDateAdded(i));
+                    output.writeInt(index.getWidth(i));
+                    output.writeInt(index.getHeight(i));
+                    output.writeShort(index.getOrientation(i));
+                    output.writeLong(index.getSize(i));
+                    output.writeShort(index.getPathLength(i));
+                    output.write(pathBlob, index.getPathOffset(i), index.getPathLength(i));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                tempFile.delete();
+                return;
+            }
+            if (!tempFile.renameTo(new File(directory, FILE_NAME))) {
+                tempFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.tiktok.ic.camera.media;
+
+import android.database.Cursor;
+import android.provider.MediaStore;
+
+import java.util.Objects;
+
+/**
+ * 媒体库中的一张图片
+ */
+public class MediaItem {
+
+    // 读取MediaItem需要的列，fromCursor按这个顺序读取
+    static final String[] PROJECTION = {
+            MediaStore.Images.Media._ID,
+            MediaStore.Images.Media.DATA,
+            MediaStore.Images.Media.BUCKET_ID,
+            MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+            MediaStore.Images.Media.DATE_ADDED,
+            MediaStore.Images.Media.WIDTH,
+            MediaStore.Images.Media.HEIGHT,
+            MediaStore.Images.Media.ORIENTATION,
+            MediaStore.Images.Media.SIZE
+    };
+
+    public final long id;
+    public final String path;
+    public final long bucketId;
+    public final String bucketName;
+    // 加入媒体库的时间，单位为秒
+    public final long dateAdded;
+    // 图片文件中的原始尺寸，未按orientation旋转
+    public final int width;
+    public final int height;
+    // 顺时针旋转角度：0、90、180或270
+    public final int orientation;
+    // 文件大小，单位为字节
+    public final long size;
+
+    public MediaItem(long id, String path, long bucketId, String bucketName, long dateAdded,
+                     int width, int height, int orientation, long size) {
+        this.id = id;
+        this.path = path;
+        this.bucketId = bucketId;
+        this.bucketName = bucketName;
+        this.dateAdded = dateAdded;
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.size = size;
+    }
+
+    /**
+     * 从使用 {@link #PROJECTION} 查询的游标的当前行读取
+     */
+    static MediaItem fromCursor(Cursor cursor) {
+        return new MediaItem(
+                cursor.getLong(0),
+                cursor.getString(1),
+                cursor.getLong(2),
+                cursor.getString(3),
+                cursor.getLong(4),
+                cursor.getInt(5),
+                cursor.getInt(6),
+                cursor.getInt(7),
+                cursor.getLong(8));
+    }
+
+    /**
+     * 两条记录的内容是否完全相同
+     */
+    boolean isSameAs(MediaItem other) {
+        return id == other.id
+                && bucketId == other.bucketId
+                && dateAdded == other.dateAdded
+                && width == other.width
+                && height == other.height
+                && orientation == other.orientation
+                && size == other.size
+                && Objects.equals(path, other.path)
+                && Objects.equals(bucketName, other.bucketName);
+    }
+
+    /**
+     * 是否排在other之前：按加入时间从新到旧，时间相同时按ID从大到小
+     */
+    boolean isBefore(MediaItem other) {
+        if (dateAdded != other.dateAdded) {
+            return dateAdded > other.dateAdded;
+        }
+        return id > other.id;
+    }
+}
@@ -0,0 +1,176 @@
+package com.tiktok.ic.camera.media;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MediaStore分页加载器
+ * 按加入时间从新到旧分页查询图片：第一页只包含首屏需要的数量，尽快显示；
+ * 其余部分在后台按较大的页继续加载，每加载一页就在主线程回调一次，由界面追加到列表末尾。
+ *
+ * 翻页使用上一页最后一条记录的(DATE_ADDED, _ID)作为起点（keyset分页），
+ * 每页查询的代价与已经加载的数量无关，不会像OFFSET那样越往后越慢。
+ * 可以用 {@link #forBucket} 只加载一个相册中的图片。
+ * 一个加载器只能启动一次，界面销毁或重新加载前需要调用 {@link #cancel}
+ */
+public class MediaPageLoader {
+
+    /**
+     * 加载进度回调，都在主线程调用
+     */
+    public interface Listener {
+        /**
+         * @param items 新加载的一页图片，按加入时间从新到旧排列
+         * @param firstPage 是否为第一页
+         */
+        void onPageLoaded(List<MediaItem> items, boolean firstPage);
+
+        /**
+         * 全部加载完成（包括媒体库为空或查询失败的情况）
+         */
+        void onLoadFinished();
+    }
+
+    // 第一页覆盖首屏的网格
+    public static final int DEFAULT_FIRST_PAGE_SIZE = 120;
+    public static final int DEFAULT_PAGE_SIZE = 2000;
+
+    private static final Uri IMAGES_URI = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    static final String SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " DESC, "
+            + MediaStore.Images.Media._ID + " DESC";
+    // 排在上一页最后一条之后的记录
+    private static final String NEXT_PAGE_SELECTION = "(" + MediaStore.Images.Media.DATE_ADDED + " < ? OR ("
+            + MediaStore.Images.Media.DATE_ADDED + " = ? AND " + MediaStore.Images.Media._ID + " < ?))";
+    private static final String BUCKET_SELECTION = MediaStore.Images.Media.BUCKET_ID + " = ?";
+
+    private final ContentResolver contentResolver;
+    private final int firstPageSize;
+    private final int pageSize;
+    // 只加载该相册中的图片，为null时加载全部
+    private final Long bucketId;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean cancelled;
+    private boolean started;
+
+    public MediaPageLoader(ContentResolver contentResolver) {
+        this(contentResolver, DEFAULT_FIRST_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+    }
+
+    public MediaPageLoader(ContentResolver contentResolver, int firstPageSize, int pageSize) {
+        this(contentResolver, firstPageSize, pageSize, null);
+    }
+
+    private MediaPageLoader(ContentResolver contentResolver, int firstPageSize, int pageSize, Long bucketId) {
+        this.contentResolver = contentResolver;
+        this.firstPageSize = firstPageSize;
+        this.pageSize = pageSize;
+        this.bucketId = bucketId;
+    }
+
+    /**
+     * 只加载一个相册（MediaStore的BUCKET_ID）中图片的加载器
+     */
+    public static MediaPageLoader forBucket(ContentResolver contentResolver, long bucketId) {
+        return new MediaPageLoader(contentResolver, DEFAULT_FIRST_PAGE_SIZE, DEFAULT_PAGE_SIZE, bucketId);
+    }
+
+    /**
+     * 在后台线程开始加载
+     */
+    public void start(Listener listener) {
+        if (started) {
+            throw new IllegalStateException("MediaPageLoader can only be started once");
+        }
+        started = true;
+        Thread thread = new Thread(() -> loadPages(listener), "media-page-loader");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * 停止加载，之后不会再回调Listener
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void loadPages(Listener listener) {
+        MediaItem last = null;
+        boolean firstPage = true;
+        while (!cancelled) {
+            int limit = firstPage ? firstPageSize : pageSize;
+            List<MediaItem> page = queryPage(last, limit);
+            if (page.isEmpty()) {
+                break;
+            }
+            boolean isFirst = firstPage;
+            post(() -> listener.onPageLoaded(page, isFirst));
+            if (page.size() < limit) {
+                break;
+            }
+            last = page.get(page.size() - 1);
+            firstPage = false;
+        }
+        post(listener::onLoadFinished);
+    }
+
+    /**
+     * 查询排在after之后的最多limit张图片
+     */
+    private List<MediaItem> queryPage(MediaItem after, int limit) {
+        List<String> selections = new ArrayList<>(2);
+        List<String> selectionArgs = new ArrayList<>(4);
+        if (bucketId != null) {
+            selections.add(BUCKET_SELECTION);
+            selectionArgs.add(String.valueOf(bucketId));
+        }
+        if (after != null) {
+            selections.add(NEXT_PAGE_SELECTION);
+            selectionArgs.add(String.valueOf(after.dateAdded));
+            selectionArgs.add(String.valueOf(after.dateAdded));
+            selectionArgs.add(String.valueOf(after.id));
+        }
+
+        Bundle queryArgs = new Bundle();
+        if (!selections.isEmpty()) {
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, String.join(" AND ", selections));
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs.toArray(new String[0]));
+        }
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, SORT_ORDER);
+        queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+
+        List<MediaItem> items = new ArrayList<>(Math.min(limit, DEFAULT_PAGE_SIZE));
+        try (Cursor cursor = contentResolver.query(IMAGES_URI, MediaItem.PROJECTION, queryArgs, null)) {
+            if (cursor == null) {
+                return items;
+            }
+            // 部分系统版本会忽略QUERY_ARG_LIMIT，这里只读取limit条，下一页仍从最后一条之后开始
+            while (items.size() < limit && !cancelled && cursor.moveToNext()) {
+                items.add(MediaItem.fromCursor(cursor));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return items;
+    }
+
+    private void post(Runnable callback) {
+        mainHandler.post(() -> {
+            if (!cancelled) {
+                callback.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.tiktok.ic.camera.media;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * 按年月划分的分段索引
+ * 记录 {@link MediaIndex} 中每个月第一张图片的位置，
+ * 按分段查位置为O(1)，按位置查分段为二分查找。月份按本地时区计算
+ */
+public class MediaSections {
+
+    private static final MediaSections EMPTY = new MediaSections(new int[0], new int[0]);
+
+    // 每个分段第一张图片在索引中的位置，递增
+    private final int[] positions;
+    // 每个分段的年月：year * 12 + month（month从0开始）
+    private final int[] yearMonths;
+
+    private MediaSections(int[] positions, int[] yearMonths) {
+        this.positions = positions;
+        this.yearMonths = yearMonths;
+    }
+
+    /**
+     * 遍历一次索引生成分段，只在进入新的月份时计算日历
+     */
+    static MediaSections build(MediaIndex index) {
+        int size = index.size();
+        if (size == 0) {
+            return EMPTY;
+        }
+        int[] positions = new int[16];
+        int[] yearMonths = new int[16];
+        int count = 0;
+
+        Calendar calendar = Calendar.getInstance();
+        // 当前分段所在月份的起止时间（秒），索引按时间从新到旧排列
+        long monthStart = Long.MAX_VALUE;
+        long monthEnd = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long dateAdded = index.getDateAdded(i);
+            if (dateAdded >= monthStart && dateAdded < monthEnd) {
+                continue;
+            }
+            calendar.setTimeInMillis(dateAdded * 1000);
+            int yearMonth = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            monthStart = calendar.getTimeInMillis() / 1000;
+            calendar.add(Calendar.MONTH, 1);
+            monthEnd = calendar.getTimeInMillis() / 1000;
+
+            // 同一秒排序的记录可能跨越边界后又回到同一个月，不重复添加
+            if (count > 0 && yearMonths[count - 1] == yearMonth) {
+                continue;
+            }
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+                yearMonths = Arrays.copyOf(yearMonths, count * 2);
+            }
+            positions[count] = i;
+            yearMonths[count] = yearMonth;
+            count++;
+        }
+        return new MediaSections(Arrays.copyOf(positions, count), Arrays.copyOf(yearMonths, count));
+    }
+
+    public int getSectionCount() {
+        return positions.length;
+    }
+
+    /**
+     * 分段第一张图片的位置
+     */
+    public int getPositionForSection(int section) {
+        return positions[section];
+    }
+
+    /**
+     * 位置所在的分段
+     */
+    public int getSectionForPosition(int position) {
+        int index = Arrays.binarySearch(positions, position);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    /**
+     * 分段中图片的数量
+     *
+     * @param total 索引中图片的总数
+     */
+    public int getSectionLength(int section, int total) {
+        int end = section + 1 < positions.length ? positions[section + 1] : total;
+        return end - positions[section];
+    }
+
+    public int getYear(int section) {
+        return yearMonths[section] / 12;
+    }
+
+    /**
+     * @return 月份，从1开始
+     */
+    public int getMonth(int section) {
+        return yearMonths[section] % 12 + 1;
+    }
+
+    /**
+     * 分段的显示名称，例如“2024年3月”
+     */
+    public String getLabel(int section) {
+        return getYear(section) + "年" + getMonth(section) + "月";
+    }
+}
@@ -0,0 +1,170 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Bitmap复用池
+ * 保存不再显示的可修改图片，作为 {@link BitmapFactory.Options#inBitmap} 供之后的解码复用，
+ * 快速滑动时不必为每张缩略图重新分配内存。
+ *
+ * 图片按占用字节数分级（2的幂次），查找时只检查需要的级别和上一级，浪费的内存不超过一倍；
+ * 超出总大小上限时从最大的级别开始丢弃。
+ * 放入池中的图片不能再被任何地方显示或引用。线程安全
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    // 级别 -> 该级别的空闲图片，队尾为最近放入
+    private final SparseArray<ArrayDeque<Bitmap>> classes = new SparseArray<>();
+    private long currentBytes;
+    private long hitCount;
+    private long missCount;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 取出至少能容纳byteCount字节的图片
+     *
+     * @return 池中的图片，没有合适的图片时返回null
+     */
+    public synchronized Bitmap get(int byteCount) {
+        int sizeClass = sizeClassOf(byteCount);
+        for (int candidate = sizeClass; candidate <= sizeClass + 1; candidate++) {
+            ArrayDeque<Bitmap> bitmaps = classes.get(candidate);
+            if (bitmaps == null) {
+                continue;
+            }
+            Iterator<Bitmap> iterator = bitmaps.descendingIterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.getAllocationByteCount() >= byteCount) {
+                    iterator.remove();
+                    currentBytes -= bitmap.getAllocationByteCount();
+                    hitCount++;
+                    return bitmap;
+                }
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * 复用池中的图片解码文件
+     *
+     * @param imagePath 图片路径
+     * @param options 已经过inJustDecodeBounds得到outWidth/outHeight并设置好inSampleSize的解码参数
+     * @return 可修改的图片，解码失败时返回null
+     */
+    public Bitmap decodeFile(String imagePath, BitmapFactory.Options options) {
+        prepareOptions(options);
+        try {
+            return BitmapFactory.decodeFile(imagePath, options);
+        } catch (IllegalArgumentException e) {
+            // 图片格式不支持复用inBitmap，放回后重新分配
+            put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(imagePath, options);
+        }
+    }
+
+    /**
+     * 复用池中的图片解码字节数组
+     *
+     * @return 可修改的图片，解码失败时返回null
+     */
+    public Bitmap decodeByteArray(byte[] data, int offset, int length) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, offset, length, options);
+        options.inJustDecodeBounds = false;
+        prepareOptions(options);
+        try {
+            return BitmapFactory.decodeByteArray(data, offset, length, options);
+        } catch (IllegalArgumentException e) {
+            put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, offset, length, options);
+        }
+    }
+
+    /**
+     * 按ARGB_8888计算解码结果的大小，设置inBitmap和inMutable
+     */
+    private void prepareOptions(BitmapFactory.Options options) {
+        int sampleSize = Math.max(1, options.inSampleSize);
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+        options.inMutable = true;
+        options.inBitmap = width > 0 && height > 0 ? get(width * height * 4) : null;
+    }
+
+    /**
+     * 放回不再使用的图片，不可修改或已回收的图片直接丢弃
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int byteCount = bitmap.getAllocationByteCount();
+        if (byteCount > maxBytes / 2) {
+            bitmap.recycle();
+            return;
+        }
+
+        int sizeClass = sizeClassOf(byteCount);
+        ArrayDeque<Bitmap> bitmaps = classes.get(sizeClass);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            classes.put(sizeClass, bitmaps);
+        }
+        bitmaps.addLast(bitmap);
+        currentBytes += byteCount;
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * 释放池中的图片，直到总大小不超过maxSize
+     */
+    public synchronized void trimToSize(long maxSize) {
+        for (int i = classes.size() - 1; i >= 0 && currentBytes > maxSize; i--) {
+            ArrayDeque<Bitmap> bitmaps = classes.valueAt(i);
+            while (!bitmaps.isEmpty() && currentBytes > maxSize) {
+                Bitmap bitmap = bitmaps.pollFirst();
+                currentBytes -= bitmap.getAllocationByteCount();
+                bitmap.recycle();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 复用命中率
+     */
+    public synchronized float getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (float) hitCount / total;
+    }
+
+    private static int sizeClassOf(int byteCount) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(1, byteCount) - 1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 图片网格预取器
+ * 根据滑动方向和速度，把即将出现的若干行缩略图提前加载到内存缓存中（低于可见单元格的优先级）。
+ * GridLayoutManager自身的预取只提前绑定下一行单元格，这里在它之外再多预取几行的缩略图。
+ *
+ * 滑动过快时（每秒超过 {@link #MAX_SCREENS_PER_SECOND} 屏）预取的行在解码完成前就会划过，不做预取，
+ * 停止滑动时再按最后的方向预取；滑动方向改变时取消尚未开始的预取。
+ * 网格需要使用GridLayoutManager，适配器需要实现 {@link ImageSource}
+ */
+public class GridPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * 按位置提供图片路径和图片在MediaStore中的ID
+     */
+    public interface ImageSource {
+        String getImagePath(int position);
+
+        long getMediaId(int position);
+    }
+
+    private static final float MAX_SCREENS_PER_SECOND = 3f;
+    // 速度的平滑系数，避免单次onScroll的抖动
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private final RecyclerView recyclerView;
+    private final int thumbnailSize;
+    private final int rowsAhead;
+
+    private int lastFirstRow = -1;
+    private long lastScrollTime;
+    // 每秒滑过的行数，正数为向下
+    private float rowsPerSecond;
+    private int direction = 1;
+
+    /**
+     * @param recyclerView 图片网格
+     * @param thumbnailSize 缩略图边长，与适配器加载时使用的尺寸一致
+     * @param rowsAhead 预取的行数
+     */
+    public GridPrefetcher(RecyclerView recyclerView, int thumbnailSize, int rowsAhead) {
+        this.recyclerView = recyclerView;
+        this.thumbnailSize = thumbnailSize;
+        this.rowsAhead = rowsAhead;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            rowsPerSecond = 0;
+            GridLayoutManager layoutManager = getLayoutManager();
+            if (layoutManager != null) {
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                prefetch(first, last - first + 1, layoutManager.getItemCount());
+            }
+        }
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        GridLayoutManager layoutManager = getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+        int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+        if (firstVisibleItem == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int visibleItemCount = layoutManager.findLastVisibleItemPosition() - firstVisibleItem + 1;
+        int totalItemCount = layoutManager.getItemCount();
+        int columns = layoutManager.getSpanCount();
+        int firstRow = firstVisibleItem / columns;
+        if (firstRow == lastFirstRow) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (lastFirstRow >= 0 && now > lastScrollTime) {
+            int deltaRows = firstRow - lastFirstRow;
+            float instant = deltaRows * 1000f / (now - lastScrollTime);
+            rowsPerSecond = rowsPerSecond * VELOCITY_SMOOTHING + instant * (1 - VELOCITY_SMOOTHING);
+
+            int newDirection = deltaRows > 0 ? 1 : -1;
+            if (newDirection != direction) {
+                direction = newDirection;
+                ThumbnailLoader.getInstance().cancelPrefetches();
+            }
+        }
+        lastFirstRow = firstRow;
+        lastScrollTime = now;
+
+        int visibleRows = Math.max(1, (visibleItemCount + columns - 1) / columns);
+        if (Math.abs(rowsPerSecond) > visibleRows * MAX_SCREENS_PER_SECOND) {
+            return;
+        }
+        prefetch(firstVisibleItem, visibleItemCount, totalItemCount);
+    }
+
+    /**
+     * 预取可见区域之外、滑动方向上的rowsAhead行
+     */
+    private void prefetch(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        ThumbnailLoader loader = ThumbnailLoader.getInstance();
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        GridLayoutManager layoutManager = getLayoutManager();
+        if (!(adapter instanceof ImageSource) || layoutManager == null
+                || firstVisibleItem < 0 || visibleItemCount <= 0 || loader.isPrefetchPaused()) {
+            return;
+        }
+
+        int count = rowsAhead * layoutManager.getSpanCount();
+        int start;
+        int end;
+        if (direction > 0) {
+            start = firstVisibleItem + visibleItemCount;
+            end = Math.min(totalItemCount, start + count);
+        } else {
+            end = firstVisibleItem;
+            start = Math.max(0, end - count);
+        }
+
+        // 解码队列在同一优先级中后进先出，离可见区域远的先提交，即将出现的一行最后提交、最先解码
+        ImageSource source = (ImageSource) adapter;
+        for (int i = 0; i < end - start; i++) {
+            int position = direction > 0 ? end - 1 - i : start + i;
+            String imagePath = source.getImagePath(position);
+            if (imagePath != null) {
+                loader.prefetch(imagePath, source.getMediaId(position), thumbnailSize);
+            }
+        }
+    }
+
+    private GridLayoutManager getLayoutManager() {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        return layoutManager instanceof GridLayoutManager ? (GridLayoutManager) layoutManager : null;
+    }
+}
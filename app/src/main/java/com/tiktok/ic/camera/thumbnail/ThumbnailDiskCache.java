@@ -0,0 +1,281 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 缩略图磁盘缓存
+ * 缩放裁剪好的正方形缩略图以JPEG格式追加写入同一个数据文件（pack），
+ * 每条记录在索引文件（idx）中追加一条定长记录：键的哈希、原图修改时间、在数据文件中的偏移和长度。
+ *
+ * 启动时将索引文件映射到内存一次性读入，之后查找只需一次哈希表访问和一次按偏移读取，
+ * 不需要打开原图。原图修改时间变化后旧记录自动失效；同一个键的后写记录覆盖先写记录。
+ *
+ * 数据文件超过上限时整体清空重建；写入中途被中断时，不完整的尾部记录在下次读入时被忽略，索引文件截断到最后一条完整记录。
+ * 线程安全，可以在多个解码线程中同时使用
+ */
+public class ThumbnailDiskCache {
+
+    private static final String PACK_FILE_NAME = "thumbnails.pack";
+    private static final String INDEX_FILE_NAME = "thumbnails.idx";
+
+    private static final int MAGIC = 0x54484d42; // "THMB"
+    // 版本2起缩略图按EXIF方向转正后写入，版本不同的旧缓存整体清空
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    // keyHash(8) + lastModified(8) + offset(8) + length(4)
+    private static final int RECORD_BYTES = 28;
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    private final File directory;
+    private final long maxBytes;
+    private final BitmapPool bitmapPool;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private RandomAccessFile packFile;
+    private RandomAccessFile indexFile;
+    private long packLength;
+    private boolean loaded;
+
+    /**
+     * @param bitmapPool 读取时解码复用的图片池，可以为null
+     */
+    public ThumbnailDiskCache(File directory, long maxBytes, BitmapPool bitmapPool) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.bitmapPool = bitmapPool;
+    }
+
+    /**
+     * 读入索引，首次访问时自动调用；可以提前在后台线程调用，避免首次查找时等待
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                return;
+            }
+            packFile = new RandomAccessFile(new File(directory, PACK_FILE_NAME), "rw");
+            indexFile = new RandomAccessFile(new File(directory, INDEX_FILE_NAME), "rw");
+            packLength = packFile.length();
+            if (!readIndex()) {
+                reset();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+        }
+    }
+
+    /**
+     * 读取缓存的缩略图
+     *
+     * @param imagePath 原图路径
+     * @param size 缩略图边长
+     * @param lastModified 原图的修改时间，与写入时不同则视为未命中
+     * @return 缩略图，未命中时返回null
+     */
+    public Bitmap get(String imagePath, int size, long lastModified) {
+        byte[] data = getData(imagePath, size, lastModified);
+        if (data == null) {
+            return null;
+        }
+        // 解码不需要持有锁
+        if (bitmapPool != null) {
+            return bitmapPool.decodeByteArray(data, 0, data.length);
+        }
+        return BitmapFactory.decodeByteArray(data, 0, data.length);
+    }
+
+    /**
+     * 写入缩略图
+     *
+     * @param imagePath 原图路径
+     * @param size 缩略图边长
+     * @param lastModified 原图的修改时间
+     * @param thumbnail 缩略图
+     */
+    public void put(String imagePath, int size, long lastModified, Bitmap thumbnail) {
+        if (thumbnail == null || thumbnail.isRecycled()) {
+            return;
+        }
+        // 压缩不需要持有锁
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!thumbnail.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream)) {
+            return;
+        }
+        putData(imagePath, size, lastModified, outputStream.toByteArray());
+    }
+
+    /**
+     * 读取缓存的JPEG数据
+     *
+     * @return JPEG数据，未命中时返回null
+     */
+    synchronized byte[] getData(String imagePath, int size, long lastModified) {
+        load();
+        Entry entry = entries.get(hashKey(imagePath, size));
+        if (packFile == null || entry == null || entry.lastModified != lastModified) {
+            return null;
+        }
+        byte[] data = new byte[entry.length];
+        try {
+            packFile.seek(entry.offset);
+            packFile.readFully(data);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * 写入压缩好的JPEG数据
+     */
+    synchronized void putData(String imagePath, int size, long lastModified, byte[] data) {
+        load();
+        if (packFile == null) {
+            return;
+        }
+        try {
+            if (packLength + data.length > maxBytes) {
+                reset();
+            }
+            long offset = packLength;
+            packFile.seek(offset);
+            packFile.write(data);
+            packLength += data.length;
+
+            // 数据写完后再写索引，中断时最多丢失这一条
+            long keyHash = hashKey(imagePath, size);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            record.putLong(keyHash);
+            record.putLong(lastModified);
+            record.putLong(offset);
+            record.putInt(data.length);
+            indexFile.seek(indexFile.length());
+            indexFile.write(record.array());
+
+            entries.put(keyHash, new Entry(lastModified, offset, data.length));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        load();
+        if (packFile == null) {
+            return;
+        }
+        try {
+            reset();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 将索引文件映射到内存并读入全部记录
+     *
+     * @return 索引文件格式正确时返回true
+     */
+    private boolean readIndex() throws IOException {
+        long indexLength = indexFile.length();
+        if (indexLength < HEADER_BYTES) {
+            return false;
+        }
+        MappedByteBuffer buffer = indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexLength);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return false;
+        }
+
+        long recordCount = (indexLength - HEADER_BYTES) / RECORD_BYTES;
+        long validLength = HEADER_BYTES + recordCount * RECORD_BYTES;
+        for (long i = 0; i < recordCount; i++) {
+            long keyHash = buffer.getLong();
+            long lastModified = buffer.getLong();
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            // 数据没有完整写入的记录直接忽略
+            if (offset >= 0 && length > 0 && offset + length <= packLength) {
+                entries.put(keyHash, new Entry(lastModified, offset, length));
+            }
+        }
+        // 截掉写了一半的尾部记录，否则之后的记录都从错误的偏移开始追加
+        if (indexLength != validLength) {
+            indexFile.setLength(validLength);
+        }
+        return true;
+    }
+
+    private void reset() throws IOException {
+        entries.clear();
+        packFile.setLength(0);
+        packLength = 0;
+        indexFile.setLength(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        indexFile.seek(0);
+        indexFile.write(header.array());
+    }
+
+    private void close() {
+        try {
+            if (packFile != null) {
+                packFile.close();
+            }
+            if (indexFile != null) {
+                indexFile.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        packFile = null;
+        indexFile = null;
+    }
+
+    /**
+     * 64位FNV-1a哈希，索引中只保存哈希值，不保存路径字符串
+     */
+    private static long hashKey(String imagePath, int size) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < imagePath.length(); i++) {
+            hash ^= imagePath.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= size;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final long offset;
+        final int length;
+
+        Entry(long lastModified, long offset, int length) {
+            this.lastModified = lastModified;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缩略图加载器（全局单例）
+ * 图库、拼图选择和相册列表共用同一个有界的解码线程池：
+ * 同一路径和尺寸的请求只解码一次，结果分发给所有等待的ImageView；
+ * ImageView被重新绑定到其他图片时，旧请求自动取消，尚未开始的解码任务直接从队列中移除。
+ *
+ * 解码队列按优先级和提交顺序排列：可见单元格优先于预取，同一优先级中后提交的先执行（LIFO），
+ * 快速滑动后最先解码的是当前停留位置的单元格，而不是早已划过的单元格。
+ *
+ * 解码结果按路径和尺寸保存在 {@link ThumbnailMemoryCache} 中，命中时直接同步显示；
+ * 未命中时由 {@link ThumbnailResolver} 在解码线程中依次尝试磁盘缓存、EXIF缩略图、系统缩略图和解码原图；
+ * 调用方知道图片在MediaStore中的ID时一并传入，获取系统缩略图时不需要再按路径查询ID。
+ *
+ * 解码使用 {@link BitmapPool} 中的图片作为inBitmap。加载器记录每张缩略图正在被哪些ImageView显示，
+ * 缩略图既不在内存缓存中、也没有ImageView显示时才放回复用池，
+ * 因此显示缩略图的ImageView需要通过 {@link #load} 或 {@link #cancel} 解除绑定，其他地方不能保留缩略图的引用。
+ *
+ * 预取请求（{@link #prefetch}）只把结果放入缓存，队列中没有可见单元格的任务时才会执行；
+ * 系统内存紧张时暂停预取。
+ *
+ * 需要先在Application中调用 {@link #init} 初始化；
+ * 除解码外的所有状态只在主线程访问，{@link #load}、{@link #cancel} 需要在主线程调用
+ */
+public class ThumbnailLoader {
+
+    /**
+     * 不知道图片在MediaStore中的ID时传入，获取系统缩略图前按路径查询
+     */
+    public static final long NO_MEDIA_ID = -1;
+
+    // 解码任务优先级，数值小的先执行
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
+
+    // 收到内存警告后暂停预取的时长
+    private static final long PREFETCH_PAUSE_MILLIS = 30_000;
+
+    private static volatile ThumbnailLoader instance;
+
+    private final ThumbnailMemoryCache memoryCache;
+    private final ThumbnailDiskCache diskCache;
+    private final ThumbnailResolver resolver;
+    private final BitmapPool bitmapPool;
+    private final ThreadPoolExecutor executor;
+    // 任务提交序号，用于同一优先级内后进先出，只在主线程递增
+    private long taskSequence;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 正在进行的请求，按路径和尺寸去重
+    private final Map<String, Request> requests = new HashMap<>();
+    // 每个ImageView当前绑定的请求，ImageView被回收后自动移除
+    private final Map<ImageView, Request> boundRequests = new WeakHashMap<>();
+    // 每个ImageView当前显示的缩略图
+    private final Map<ImageView, Bitmap> displayedBitmaps = new WeakHashMap<>();
+    // 每张缩略图正在被多少个ImageView显示
+    private final Map<Bitmap, Integer> displayCounts = new WeakHashMap<>();
+    // 已移出内存缓存、但仍在显示的缩略图，不再显示时放回复用池
+    private final Set<Bitmap> evictedBitmaps = Collections.newSetFromMap(new WeakHashMap<>());
+    private long prefetchPausedUntil;
+
+    /**
+     * 初始化全局实例，在Application.onCreate中调用
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (ThumbnailLoader.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    int memoryCacheBytes = ThumbnailMemoryCache.getDefaultMaxBytes(appContext);
+                    // 复用池大小为内存缓存的一半
+                    instance = new ThumbnailLoader(appContext, memoryCacheBytes, memoryCacheBytes / 2L,
+                        new File(appContext.getCacheDir(), "thumbnails"));
+                }
+            }
+        }
+    }
+
+    public static ThumbnailLoader getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("ThumbnailLoader.init() has not been called");
+        }
+        return instance;
+    }
+
+    private ThumbnailLoader(Context context, int memoryCacheBytes, long poolBytes, File diskCacheDirectory) {
+        bitmapPool = new BitmapPool(poolBytes);
+        memoryCache = new ThumbnailMemoryCache(memoryCacheBytes, this::onEvicted);
+        diskCache = new ThumbnailDiskCache(diskCacheDirectory, ThumbnailDiskCache.DEFAULT_MAX_BYTES, bitmapPool);
+        resolver = new ThumbnailResolver(context.getContentResolver(), diskCache, bitmapPool);
+        // 解码主要受IO和内存带宽限制，线程数不超过4个，并给主线程留出一个核心
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列中只放入DecodeTask，需要用execute提交（submit会包装成不可比较的FutureTask）
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "thumbnail-" + threadIndex.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        // 提前在后台读入磁盘缓存索引，打开图库时无需等待
+        executor.execute(new DecodeTask(PRIORITY_VISIBLE, taskSequence++, diskCache::load));
+    }
+
+    /**
+     * 全局Bitmap复用池，也用于预览大图的解码
+     */
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * 各级缩略图来源的命中统计
+     */
+    public ThumbnailResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * 加载正方形缩略图并显示到ImageView上
+     * 会取消该ImageView之前绑定的请求；内存缓存命中时在当前调用中直接显示
+     *
+     * @param imageView 目标ImageView
+     * @param imagePath 图片路径
+     * @param mediaId 图片在MediaStore中的ID，不知道时为 {@link #NO_MEDIA_ID}
+     * @param size 缩略图边长
+     */
+    public void load(ImageView imageView, String imagePath, long mediaId, int size) {
+        String key = createKey(imagePath, size);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            resolver.recordMemoryHit();
+            Request bound = boundRequests.get(imageView);
+            if (bound != null) {
+                detach(imageView, bound);
+            }
+            display(imageView, cached);
+            return;
+        }
+
+        Request bound = boundRequests.get(imageView);
+        if (bound != null && bound.key.equals(key)) {
+            return;
+        }
+        cancel(imageView);
+
+        Request request = requests.get(key);
+        if (request == null) {
+            request = new Request(key, imagePath, mediaId, size, false);
+            requests.put(key, request);
+            schedule(request, PRIORITY_VISIBLE);
+        } else if (request.prefetch) {
+            // 单元格已经可见，尚未开始的预取任务提升为可见优先级
+            request.prefetch = false;
+            if (executor.remove(request.task)) {
+                schedule(request, PRIORITY_VISIBLE);
+            }
+        }
+        request.targets.add(imageView);
+        boundRequests.put(imageView, request);
+    }
+
+    /**
+     * 预取缩略图到内存缓存，不绑定ImageView
+     * 已缓存或正在加载的图片直接忽略；内存紧张时不预取
+     *
+     * @param imagePath 图片路径
+     * @param mediaId 图片在MediaStore中的ID，不知道时为 {@link #NO_MEDIA_ID}
+     * @param size 缩略图边长
+     */
+    public void prefetch(String imagePath, long mediaId, int size) {
+        if (isPrefetchPaused()) {
+            return;
+        }
+        String key = createKey(imagePath, size);
+        if (requests.containsKey(key) || memoryCache.get(key) != null) {
+            return;
+        }
+        Request request = new Request(key, imagePath, mediaId, size, true);
+        requests.put(key, request);
+        schedule(request, PRIORITY_PREFETCH);
+    }
+
+    /**
+     * 取消所有尚未开始的预取请求，如滑动方向改变时
+     */
+    public void cancelPrefetches() {
+        Iterator<Request> iterator = requests.values().iterator();
+        while (iterator.hasNext()) {
+            Request request = iterator.next();
+            if (request.prefetch && request.targets.isEmpty()) {
+                request.cancelled = true;
+                executor.remove(request.task);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 最近是否收到过内存警告
+     */
+    public boolean isPrefetchPaused() {
+        return SystemClock.uptimeMillis() < prefetchPausedUntil;
+    }
+
+    /**
+     * 取消ImageView绑定的请求，并解除它与当前显示的缩略图的关联
+     */
+    public void cancel(ImageView imageView) {
+        Request bound = boundRequests.get(imageView);
+        if (bound != null) {
+            detach(imageView, bound);
+        }
+        releaseDisplayed(imageView);
+    }
+
+    /**
+     * 系统内存不足时释放缓存，由Application.onTrimMemory转发
+     */
+    public void onTrimMemory(int level) {
+        memoryCache.trimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            bitmapPool.clear();
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            // 预取的结果很可能在使用前就被淘汰，暂停一段时间
+            prefetchPausedUntil = SystemClock.uptimeMillis() + PREFETCH_PAUSE_MILLIS;
+            cancelPrefetches();
+        }
+    }
+
+    private void schedule(Request request, int priority) {
+        request.task = new DecodeTask(priority, taskSequence++, () -> decode(request));
+        executor.execute(request.task);
+    }
+
+    private void decode(Request request) {
+        // 任务出队和被取消之间可能有竞争，开始解码前再检查一次
+        if (request.cancelled) {
+            return;
+        }
+        Bitmap bitmap = resolver.resolve(request.imagePath, request.mediaId, request.size);
+        mainHandler.post(() -> deliver(request, bitmap));
+    }
+
+    private void deliver(Request request, Bitmap bitmap) {
+        if (requests.get(request.key) == request) {
+            requests.remove(request.key);
+        }
+        if (bitmap != null) {
+            // 没有等待者的结果也放入缓存，之后滑回来时可以直接使用
+            memoryCache.put(request.key, bitmap);
+        }
+
+        List<ImageView> targets = new ArrayList<>(request.targets);
+        request.targets.clear();
+        for (ImageView imageView : targets) {
+            boundRequests.remove(imageView);
+            if (bitmap != null) {
+                display(imageView, bitmap);
+            }
+        }
+    }
+
+    private void display(ImageView imageView, Bitmap bitmap) {
+        if (displayedBitmaps.get(imageView) == bitmap) {
+            imageView.setImageBitmap(bitmap);
+            return;
+        }
+        releaseDisplayed(imageView);
+        imageView.setImageBitmap(bitmap);
+        displayedBitmaps.put(imageView, bitmap);
+        Integer count = displayCounts.get(bitmap);
+        displayCounts.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * ImageView不再显示之前的缩略图；缩略图已不在缓存中且没有其他ImageView显示时放回复用池
+     */
+    private void releaseDisplayed(ImageView imageView) {
+        Bitmap bitmap = displayedBitmaps.remove(imageView);
+        if (bitmap == null) {
+            return;
+        }
+        // 确保ImageView不再引用可能被复用的图片
+        Drawable drawable = imageView.getDrawable();
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() == bitmap) {
+            imageView.setImageDrawable(null);
+        }
+
+        Integer count = displayCounts.get(bitmap);
+        if (count != null && count > 1) {
+            displayCounts.put(bitmap, count - 1);
+            return;
+        }
+        displayCounts.remove(bitmap);
+        if (evictedBitmaps.remove(bitmap)) {
+            bitmapPool.put(bitmap);
+        }
+    }
+
+    private void onEvicted(String key, Bitmap bitmap) {
+        if (displayCounts.containsKey(bitmap)) {
+            evictedBitmaps.add(bitmap);
+        } else {
+            bitmapPool.put(bitmap);
+        }
+    }
+
+    private void detach(ImageView imageView, Request request) {
+        boundRequests.remove(imageView);
+        request.targets.remove(imageView);
+        if (request.targets.isEmpty()) {
+            // 尚未开始的任务直接从队列中移除，不再占用解码线程
+            request.cancelled = true;
+            executor.remove(request.task);
+            requests.remove(request.key);
+        }
+    }
+
+    private static String createKey(String imagePath, int size) {
+        return imagePath + "#" + size;
+    }
+
+    /**
+     * 一次去重后的解码请求
+     */
+    private static class Request {
+        final String key;
+        final String imagePath;
+        final long mediaId;
+        final int size;
+        // 等待结果的ImageView
+        final Set<ImageView> targets = Collections.newSetFromMap(new WeakHashMap<>());
+        volatile boolean cancelled;
+        // 是否为没有ImageView等待的预取请求
+        boolean prefetch;
+        DecodeTask task;
+
+        Request(String key, String imagePath, long mediaId, int size, boolean prefetch) {
+            this.key = key;
+            this.imagePath = imagePath;
+            this.mediaId = mediaId;
+            this.size = size;
+            this.prefetch = prefetch;
+        }
+    }
+
+    /**
+     * 解码队列中的任务，按优先级排序，同一优先级中后提交的先执行
+     */
+    private static class DecodeTask implements Runnable, Comparable<DecodeTask> {
+        final int priority;
+        final long sequence;
+        final Runnable body;
+
+        DecodeTask(int priority, long sequence, Runnable body) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public int compareTo(DecodeTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+}
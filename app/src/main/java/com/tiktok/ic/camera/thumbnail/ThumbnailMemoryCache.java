@@ -0,0 +1,98 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * 缩略图内存缓存
+ * 按缩略图实际占用的字节数限制总大小，超出时淘汰最久未使用的缩略图。
+ *
+ * 被淘汰的缩略图可能仍在界面上显示，这里不主动recycle，由 {@link EvictionListener} 决定是否复用
+ */
+public class ThumbnailMemoryCache {
+
+    /**
+     * 缩略图被移出缓存（淘汰或被同一个键的新图片替换）时调用，在修改缓存的线程中调用
+     */
+    public interface EvictionListener {
+        void onEvicted(String key, Bitmap bitmap);
+    }
+
+    // 默认使用应用内存上限的1/8
+    private static final int DEFAULT_MEMORY_FRACTION = 8;
+
+    private final LruCache<String, Bitmap> cache;
+
+    public ThumbnailMemoryCache(int maxBytes, EvictionListener evictionListener) {
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (evictionListener != null && oldValue != newValue && !oldValue.isRecycled()) {
+                    evictionListener.onEvicted(key, oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * 默认缓存大小：ActivityManager.getMemoryClass() 的一部分
+     */
+    public static int getDefaultMaxBytes(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = activityManager != null ? activityManager.getMemoryClass() : 64;
+        return memoryClassMb * 1024 * 1024 / DEFAULT_MEMORY_FRACTION;
+    }
+
+    public Bitmap get(String key) {
+        Bitmap bitmap = cache.get(key);
+        if (bitmap != null && bitmap.isRecycled()) {
+            cache.remove(key);
+            return null;
+        }
+        return bitmap;
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        cache.put(key, bitmap);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int maxSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     * 根据系统内存状态释放缓存
+     *
+     * @param level ComponentCallbacks2中的TRIM_MEMORY_*等级
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // 应用已进入后台，全部释放
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            // 界面不可见或内存严重不足，只保留少量最近使用的缩略图
+            cache.trimToSize(cache.maxSize() / 4);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+}
@@ -0,0 +1,433 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Size;
+
+import com.tiktok.ic.camera.utils.RightAngleTransform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分级缩略图获取
+ * 按代价从低到高依次尝试：内存缓存、磁盘缓存、原图EXIF中内嵌的缩略图、
+ * 系统（MediaStore）生成的缩略图，都没有时才解码原图。
+ * 每一级的命中次数都会被记录，用于评估各级缓存的效果。
+ *
+ * 内存缓存由 {@link ThumbnailLoader} 在主线程查询，其余各级在解码线程中按顺序查询；
+ * 内嵌缩略图和系统缩略图尺寸不足时跳过，避免图库中出现明显模糊的缩略图。
+ * 系统缩略图已经按EXIF方向转正，EXIF缩略图和解码结果在这里按同样的方向转正，
+ * 同一张图片无论由哪一级得到，显示和写入磁盘缓存的方向都一致
+ */
+public class ThumbnailResolver {
+
+    /**
+     * 缩略图来源
+     */
+    public enum Tier {
+        MEMORY,
+        DISK,
+        EXIF,
+        SYSTEM,
+        DECODE,
+        // 所有方式都失败
+        FAILED
+    }
+
+    // 系统缩略图的短边至少为目标尺寸的一半才使用；达到该尺寸的EXIF缩略图直接使用
+    private static final float MIN_EMBEDDED_SCALE = 0.5f;
+    // 短边不足一半、但至少为目标尺寸0.4倍的EXIF缩略图（最常见的160x120在300像素的网格中）
+    // 只在系统缩略图不可用时使用，代价是这些单元格由120像素放大显示，比解码原图模糊
+    private static final float MIN_EXIF_SCALE = 0.4f;
+
+    private final ContentResolver contentResolver;
+    private final ThumbnailDiskCache diskCache;
+    private final BitmapPool bitmapPool;
+    private final AtomicLongArray hitCounts = new AtomicLongArray(Tier.values().length);
+
+    public ThumbnailResolver(ContentResolver contentResolver, ThumbnailDiskCache diskCache, BitmapPool bitmapPool) {
+        this.contentResolver = contentResolver;
+        this.diskCache = diskCache;
+        this.bitmapPool = bitmapPool;
+    }
+
+    /**
+     * 记录一次内存缓存命中，由加载器在主线程调用
+     */
+    void recordMemoryHit() {
+        hitCounts.incrementAndGet(Tier.MEMORY.ordinal());
+    }
+
+    /**
+     * 依次从磁盘缓存、EXIF缩略图、系统缩略图获取，最后解码原图；
+     * 短边不足目标尺寸一半的EXIF缩略图排在系统缩略图之后。
+     * 系统缩略图和解码得到的结果写入磁盘缓存；在后台线程调用
+     *
+     * @param imagePath 图片路径
+     * @param mediaId 图片在MediaStore中的ID，不知道时为 {@link ThumbnailLoader#NO_MEDIA_ID}
+     * @param size 缩略图边长
+     * @return 正方形缩略图，失败时返回null
+     */
+    public Bitmap resolve(String imagePath, long mediaId, int size) {
+        long lastModified = new File(imagePath).lastModified();
+        Bitmap bitmap = diskCache.get(imagePath, size, lastModified);
+        if (bitmap != null) {
+            return record(Tier.DISK, bitmap);
+        }
+
+        ExifInterface exif = openExif(imagePath);
+        int orientation = exif != null
+            ? exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)
+            : ExifInterface.ORIENTATION_NORMAL;
+        byte[] exifThumbnail = readExifThumbnail(exif);
+        int exifSide = exifThumbnail != null ? getShortSide(exifThumbnail) : 0;
+        if (exifSide >= size * MIN_EMBEDDED_SCALE) {
+            bitmap = decodeExifThumbnail(exifThumbnail, orientation);
+            if (bitmap != null) {
+                return record(Tier.EXIF, bitmap);
+            }
+        }
+
+        bitmap = loadSystemThumbnail(imagePath, mediaId, size);
+        if (bitmap != null) {
+            diskCache.put(imagePath, size, lastModified, bitmap);
+            return record(Tier.SYSTEM, bitmap);
+        }
+
+        // 没有系统缩略图时接受较小的EXIF缩略图，仍然比解码原图快得多
+        if (exifSide >= size * MIN_EXIF_SCALE) {
+            bitmap = decodeExifThumbnail(exifThumbnail, orientation);
+            if (bitmap != null) {
+                return record(Tier.EXIF, bitmap);
+            }
+        }
+
+        bitmap = decodeThumbnail(imagePath, orientation, size, bitmapPool);
+        if (bitmap != null) {
+            diskCache.put(imagePath, size, lastModified, bitmap);
+            return record(Tier.DECODE, bitmap);
+        }
+        hitCounts.incrementAndGet(Tier.FAILED.ordinal());
+        return null;
+    }
+
+    public long getHitCount(Tier tier) {
+        return hitCounts.get(tier.ordinal());
+    }
+
+    /**
+     * 某一级在全部请求中的命中比例
+     */
+    public float getHitRate(Tier tier) {
+        long total = 0;
+        for (int i = 0; i < hitCounts.length(); i++) {
+            total += hitCounts.get(i);
+        }
+        return total == 0 ? 0 : (float) getHitCount(tier) / total;
+    }
+
+    private Bitmap record(Tier tier, Bitmap bitmap) {
+        hitCounts.incrementAndGet(tier.ordinal());
+        return bitmap;
+    }
+
+    /**
+     * 读取图片的EXIF信息，只需读取文件头部
+     *
+     * @return 不支持EXIF的格式或EXIF数据损坏时返回null
+     */
+    private static ExifInterface openExif(String imagePath) {
+        try {
+            return new ExifInterface(imagePath);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取JPEG中内嵌的EXIF缩略图（通常为160~320像素）的压缩数据
+     */
+    private static byte[] readExifThumbnail(ExifInterface exif) {
+        if (exif == null) {
+            return null;
+        }
+        try {
+            return exif.hasThumbnail() ? exif.getThumbnailBytes() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int getShortSide(byte[] data) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        return Math.min(options.outWidth, options.outHeight);
+    }
+
+    /**
+     * 解码EXIF缩略图，裁剪为正方形并按EXIF方向转正
+     */
+    private Bitmap decodeExifThumbnail(byte[] data, int orientation) {
+        try {
+            Bitmap square = cropToSquare(bitmapPool.decodeByteArray(data, 0, data.length), bitmapPool);
+            return applyOrientation(square, orientation, bitmapPool);
+        } catch (RuntimeException e) {
+            // EXIF缩略图数据损坏，交给下一级
+            return null;
+        }
+    }
+
+    /**
+     * 获取系统生成的缩略图，系统已有缓存时无需解码原图
+     * 不知道图片的ID时先按路径查询一次MediaStore
+     */
+    private Bitmap loadSystemThumbnail(String imagePath, long mediaId, int size) {
+        Uri uri = mediaId != ThumbnailLoader.NO_MEDIA_ID
+            ? ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, mediaId)
+            : findMediaUri(imagePath);
+        if (uri == null) {
+            return null;
+        }
+        try {
+            Bitmap thumbnail = contentResolver.loadThumbnail(uri, new Size(size, size), null);
+            if (thumbnail == null
+                || Math.min(thumbnail.getWidth(), thumbnail.getHeight()) < size * MIN_EMBEDDED_SCALE) {
+                return null;
+            }
+            if (thumbnail.getConfig() == Bitmap.Config.HARDWARE) {
+                // 硬件图片不能绘制到软件画布上，也不能写入磁盘缓存
+                Bitmap software = thumbnail.copy(Bitmap.Config.ARGB_8888, true);
+                thumbnail.recycle();
+                thumbnail = software;
+            }
+            return cropToSquare(thumbnail, bitmapPool);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按文件路径查找MediaStore中的图片Uri
+     */
+    @SuppressWarnings("deprecation")
+    private Uri findMediaUri(String imagePath) {
+        String[] projection = {MediaStore.Images.Media._ID};
+        String selection = MediaStore.Images.Media.DATA + "=?";
+        try (Cursor cursor = contentResolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                projection, selection, new String[]{imagePath}, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, cursor.getLong(0));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 同步解码正方形缩略图：用区域解码只解码中间的正方形区域，
+     * 格式不支持区域解码时按采样率解码整张图片后再裁剪
+     * 可以在任意后台线程调用
+     *
+     * @param imagePath 图片路径
+     * @param orientation 图片的EXIF方向（ExifInterface.ORIENTATION_*），结果按该方向转正
+     * @param size 缩略图边长
+     * @param pool 解码和裁剪时复用的图片池，可以为null
+     * @return 缩略图，解码失败时返回null
+     */
+    public static Bitmap decodeThumbnail(String imagePath, int orientation, int size, BitmapPool pool) {
+        try {
+            // 计算缩略图的尺寸
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(imagePath, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+
+            // 计算缩放比例：正方形边长的一半仍不小于目标尺寸时继续缩小
+            int side = Math.min(options.outWidth, options.outHeight);
+            int scale = 1;
+            while ((side / 2 / scale) >= size) {
+                scale *= 2;
+            }
+
+            Bitmap square = decodeCenterSquare(imagePath, options.outWidth, options.outHeight, scale, pool);
+            if (square != null) {
+                return applyOrientation(square, orientation, pool);
+            }
+
+            // 加载缩放后的图片
+            options.inSampleSize = scale;
+            options.inJustDecodeBounds = false;
+            Bitmap bitmap = pool != null
+                ? pool.decodeFile(imagePath, options)
+                : BitmapFactory.decodeFile(imagePath, options);
+
+            // 裁剪为正方形
+            return applyOrientation(cropToSquare(bitmap, pool), orientation, pool);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 只解码图片中间的正方形区域，不解码两侧最终会被裁掉的部分
+     *
+     * @return 正方形缩略图，格式不支持区域解码时返回null
+     */
+    private static Bitmap decodeCenterSquare(String imagePath, int width, int height, int scale,
+                                             BitmapPool pool) {
+        BitmapRegionDecoder decoder;
+        try {
+            decoder = newRegionDecoder(imagePath);
+        } catch (IOException e) {
+            // 不支持区域解码的格式（如GIF、BMP），由调用方退回到整图解码
+            return null;
+        }
+
+        try {
+            int side = Math.min(width, height);
+            int x = (width - side) / 2;
+            int y = (height - side) / 2;
+            Rect region = new Rect(x, y, x + side, y + side);
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = scale;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            if (pool != null) {
+                // 区域解码不会改变inBitmap的尺寸，需要先调整为输出尺寸；向下取整，多出的一行像素被裁掉
+                int outputSide = Math.max(1, side / scale);
+                Bitmap reused = pool.get(outputSide * outputSide * 4);
+                if (reused != null) {
+                    reused.reconfigure(outputSide, outputSide, Bitmap.Config.ARGB_8888);
+                    options.inBitmap = reused;
+                }
+                options.inMutable = true;
+            }
+
+            try {
+                return decoder.decodeRegion(region, options);
+            } catch (IllegalArgumentException e) {
+                if (options.inBitmap == null) {
+                    throw e;
+                }
+                pool.put(options.inBitmap);
+                options.inBitmap = null;
+                return decoder.decodeRegion(region, options);
+            }
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newRegionDecoder(String imagePath) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(imagePath);
+        }
+        return BitmapRegionDecoder.newInstance(imagePath, false);
+    }
+
+    /**
+     * 按EXIF方向将正方形缩略图转正
+     * 中心正方形先裁剪再旋转与先旋转再裁剪的结果相同，这里只需变换裁剪后的较少像素
+     *
+     * @return 转正后的缩略图；方向为正常时返回原图引用，否则原图放回复用池
+     */
+    private static Bitmap applyOrientation(Bitmap bitmap, int orientation, BitmapPool pool) {
+        if (bitmap == null) return null;
+
+        // 与RightAngleTransform的定义一致：先水平翻转，再顺时针旋转
+        int quarterTurns;
+        boolean mirrored;
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                quarterTurns = 0;
+                mirrored = true;
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                quarterTurns = 2;
+                mirrored = false;
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                quarterTurns = 2;
+                mirrored = true;
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                quarterTurns = 3;
+                mirrored = true;
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                quarterTurns = 1;
+                mirrored = false;
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                quarterTurns = 1;
+                mirrored = true;
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                quarterTurns = 3;
+                mirrored = false;
+                break;
+            default:
+                return bitmap;
+        }
+
+        Bitmap oriented = RightAngleTransform.transform(bitmap, quarterTurns, mirrored);
+        if (oriented != bitmap) {
+            if (pool != null) {
+                pool.put(bitmap);
+            } else {
+                bitmap.recycle();
+            }
+        }
+        return oriented;
+    }
+
+    private static Bitmap cropToSquare(Bitmap bitmap, BitmapPool pool) {
+        if (bitmap == null) return null;
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width == height) {
+            return bitmap;
+        }
+        int size = Math.min(width, height);
+
+        // 计算裁剪区域
+        int x = (width - size) / 2;
+        int y = (height - size) / 2;
+
+        // 裁剪结果也尽量使用复用池中的图片，解码用的图片用完放回复用池
+        Bitmap square = pool != null ? pool.get(size * size * 4) : null;
+        if (square != null) {
+            square.reconfigure(size, size, Bitmap.Config.ARGB_8888);
+        } else {
+            square = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        }
+        new Canvas(square).drawBitmap(bitmap, new Rect(x, y, x + size, y + size),
+            new Rect(0, 0, size, size), null);
+
+        if (pool != null) {
+            pool.put(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+        return square;
+    }
+}
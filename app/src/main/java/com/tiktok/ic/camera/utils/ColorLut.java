@@ -0,0 +1,228 @@
+package com.tiktok.ic.camera.utils;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 颜色查找表（LUT）
+ * 将逐像素的浮点运算预先计算为每个通道256项的整数表，处理像素时只做查表和整数运算
+ *
+ * 一张查找表由三段组成：前置通道曲线 -> 可选的饱和度混合 -> 后置通道曲线。
+ * 没有饱和度混合时，前后两段曲线会合并为一张表。
+ */
+public final class ColorLut {
+
+    public static final int SIZE = 256;
+
+    // 定点数精度（16位小数）
+    private static final int FIXED_SHIFT = 16;
+    private static final int FIXED_ONE = 1 << FIXED_SHIFT;
+
+    // 灰度权重表（定点数），对应 0.299 * r + 0.587 * g + 0.114 * b
+    private static final int[] LUMA_R = new int[SIZE];
+    private static final int[] LUMA_G = new int[SIZE];
+    private static final int[] LUMA_B = new int[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            LUMA_R[i] = (int) Math.round(0.299 * i * FIXED_ONE);
+            LUMA_G[i] = (int) Math.round(0.587 * i * FIXED_ONE);
+            LUMA_B[i] = (int) Math.round(0.114 * i * FIXED_ONE);
+        }
+    }
+
+    private final int[] preR;
+    private final int[] preG;
+    private final int[] preB;
+    private final boolean mixSaturation;
+    private final int saturation; // 定点数，范围 0 ~ FIXED_ONE
+    private final int[] postR;
+    private final int[] postG;
+    private final int[] postB;
+
+    private ColorLut(int[] preR, int[] preG, int[] preB,
+                     boolean mixSaturation, int saturation,
+                     int[] postR, int[] postG, int[] postB) {
+        this.preR = preR;
+        this.preG = preG;
+        this.preB = preB;
+        this.mixSaturation = mixSaturation;
+        this.saturation = saturation;
+        this.postR = postR;
+        this.postG = postG;
+        this.postB = postB;
+    }
+
+    /**
+     * 创建不改变颜色的查找表
+     */
+    public static ColorLut identity() {
+        int[] table = identityTable();
+        return new ColorLut(table, table, table, false, FIXED_ONE, null, null, null);
+    }
+
+    /**
+     * 根据每个通道的曲线创建查找表
+     * 曲线的输入为0-255的通道值，输出会被限制在0-255范围内
+     *
+     * @param red 红色通道曲线
+     * @param green 绿色通道曲线
+     * @param blue 蓝色通道曲线
+     * @return 查找表
+     */
+    public static ColorLut of(IntUnaryOperator red, IntUnaryOperator green, IntUnaryOperator blue) {
+        return new ColorLut(buildTable(red), buildTable(green), buildTable(blue),
+            false, FIXED_ONE, null, null, null);
+    }
+
+    /**
+     * 在当前查找表之后追加饱和度混合：c = gray + (c - gray) * saturation
+     *
+     * @param saturation 饱和度（0表示灰度，1表示不变），超出范围会被限制在0-1之间
+     * @return 新的查找表
+     */
+    public ColorLut withSaturation(float saturation) {
+        if (mixSaturation) {
+            throw new IllegalStateException("ColorLut already has a saturation stage");
+        }
+        float clamped = Math.max(0f, Math.min(1f, saturation));
+        int[] table = identityTable();
+        return new ColorLut(preR, preG, preB, true,
+            Math.round(clamped * FIXED_ONE), table, table, table);
+    }
+
+    /**
+     * 在当前查找表之后追加每个通道的曲线，结果仍为单张查找表
+     *
+     * @param red 红色通道曲线
+     * @param green 绿色通道曲线
+     * @param blue 蓝色通道曲线
+     * @return 新的查找表
+     */
+    public ColorLut andThen(IntUnaryOperator red, IntUnaryOperator green, IntUnaryOperator blue) {
+        if (mixSaturation) {
+            return new ColorLut(preR, preG, preB, true, saturation,
+                composeTable(postR, red), composeTable(postG, green), composeTable(postB, blue));
+        }
+        return new ColorLut(composeTable(preR, red), composeTable(preG, green), composeTable(preB, blue),
+            false, FIXED_ONE, null, null, null);
+    }
+
+    /**
+     * 在当前查找表之后对三个通道追加同一条曲线
+     */
+    public ColorLut andThen(IntUnaryOperator curve) {
+        return andThen(curve, curve, curve);
+    }
+
+    /**
+     * 是否为不改变颜色的查找表
+     */
+    public boolean isIdentity() {
+        if (mixSaturation) {
+            return false;
+        }
+        for (int i = 0; i < SIZE; i++) {
+            if (preR[i] != i || preG[i] != i || preB[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 将查找表应用到整个像素数组
+     * 像素数组按条带在多个核心上并行处理，结果与串行处理一致
+     */
+    public void apply(int[] pixels) {
+        ParallelPixelExecutor.forEachRange(pixels.length, (from, to) -> apply(pixels, from, to));
+    }
+
+    /**
+     * 将查找表应用到像素数组的一段区间 [from, to)
+     * 只做查表和整数运算，保留每个像素的透明度
+     *
+     * @param pixels ARGB像素数组
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     */
+    public void apply(int[] pixels, int from, int to) {
+        final int[] pr = preR;
+        final int[] pg = preG;
+        final int[] pb = preB;
+
+        if (!mixSaturation) {
+            for (int i = from; i < to; i++) {
+                int pixel = pixels[i];
+                pixels[i] = (pixel & 0xFF000000)
+                    | (pr[(pixel >> 16) & 0xFF] << 16)
+                    | (pg[(pixel >> 8) & 0xFF] << 8)
+                    | pb[pixel & 0xFF];
+            }
+            return;
+        }
+
+        final int[] qr = postR;
+        final int[] qg = postG;
+        final int[] qb = postB;
+        final int sat = saturation;
+
+        if (sat == 0) {
+            // 灰度：三个通道取同一个灰度值
+            for (int i = from; i < to; i++) {
+                int pixel = pixels[i];
+                int r = pr[(pixel >> 16) & 0xFF];
+                int g = pg[(pixel >> 8) & 0xFF];
+                int b = pb[pixel & 0xFF];
+                int gray = (LUMA_R[r] + LUMA_G[g] + LUMA_B[b]) >> FIXED_SHIFT;
+                pixels[i] = (pixel & 0xFF000000) | (qr[gray] << 16) | (qg[gray] << 8) | qb[gray];
+            }
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
+            int pixel = pixels[i];
+            int r = pr[(pixel >> 16) & 0xFF];
+            int g = pg[(pixel >> 8) & 0xFF];
+            int b = pb[pixel & 0xFF];
+            int gray = (LUMA_R[r] + LUMA_G[g] + LUMA_B[b]) >> FIXED_SHIFT;
+
+            // saturation 不超过1，混合结果一定落在 gray 与原值之间，无需再限制范围
+            r = gray + (((r - gray) * sat) >> FIXED_SHIFT);
+            g = gray + (((g - gray) * sat) >> FIXED_SHIFT);
+            b = gray + (((b - gray) * sat) >> FIXED_SHIFT);
+
+            pixels[i] = (pixel & 0xFF000000) | (qr[r] << 16) | (qg[g] << 8) | qb[b];
+        }
+    }
+
+    /**
+     * 将通道值限制在0-255范围内
+     */
+    public static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private static int[] identityTable() {
+        int[] table = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            table[i] = i;
+        }
+        return table;
+    }
+
+    private static int[] buildTable(IntUnaryOperator curve) {
+        int[] table = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            table[i] = clamp(curve.applyAsInt(i));
+        }
+        return table;
+    }
+
+    private static int[] composeTable(int[] table, IntUnaryOperator curve) {
+        int[] result = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            result[i] = clamp(curve.applyAsInt(table[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.tiktok.ic.camera.utils;
+
+import android.graphics.Bitmap;
+
+/**
+ * 颜色处理管线
+ * 将滤镜、亮度、对比度等颜色调整合并为一张查找表（滤镜的饱和度混合 + 通道曲线），
+ * 一次遍历像素完成全部处理，避免每种调整各自复制和遍历一遍整张图片。
+ * 参数在创建后不再变化，调整参数时创建新的管线；可以在多个线程中同时使用
+ *
+ * 新增的逐通道调整只需在 {@link #buildLut()} 中追加对应的通道曲线
+ */
+public class ColorPipeline {
+
+    private final FilterUtils.FilterType filter;
+    private final float brightness;
+    private final float contrast;
+
+    // 合并后的查找表，第一次使用时生成
+    private ColorLut fusedLut;
+
+    public ColorPipeline(FilterUtils.FilterType filter, float brightness, float contrast) {
+        this.filter = filter == null ? FilterUtils.FilterType.ORIGINAL : filter;
+        this.brightness = brightness;
+        this.contrast = contrast;
+    }
+
+    public FilterUtils.FilterType getFilter() {
+        return filter;
+    }
+
+    public float getBrightness() {
+        return brightness;
+    }
+
+    public float getContrast() {
+        return contrast;
+    }
+
+    /**
+     * 管线是否不做任何颜色调整
+     */
+    public boolean isIdentity() {
+        return filter == FilterUtils.FilterType.ORIGINAL && brightness == 0 && contrast == 0;
+    }
+
+    /**
+     * 获取合并后的查找表
+     */
+    public synchronized ColorLut getLut() {
+        if (fusedLut == null) {
+            fusedLut = buildLut();
+        }
+        return fusedLut;
+    }
+
+    private ColorLut buildLut() {
+        // 滤镜在前，亮度对比度在后，与分步处理的顺序一致
+        ColorLut lut = FilterUtils.getFilterLut(filter);
+        if (brightness != 0 || contrast != 0) {
+            lut = lut.andThen(ImageProcessUtils.brightnessContrastCurve(brightness, contrast));
+        }
+        return lut;
+    }
+
+    /**
+     * 将管线应用到图片
+     *
+     * @param bitmap 原始图片
+     * @return 处理后的新图片；管线不做任何调整时直接返回原图引用
+     */
+    public Bitmap apply(Bitmap bitmap) {
+        if (bitmap == null || isIdentity()) {
+            return bitmap;
+        }
+        return ImageProcessUtils.applyColorLut(bitmap, getLut());
+    }
+}
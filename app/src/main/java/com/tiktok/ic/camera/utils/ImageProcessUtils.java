@@ -6,6 +6,8 @@ import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 
+import java.util.function.IntUnaryOperator;
+
 /**
  * 图片处理工具类
  * 提供图片旋转、翻转、亮度对比度调整、水印等功能
@@ -78,6 +80,33 @@ public class ImageProcessUtils {
         return Math.max(inSampleSize, displaySampleSize);
     }
     
+    /**
+     * 创建用于交互预览的低分辨率代理图
+     * 按视图尺寸等比缩小（保持宽高比，完整显示在视图中），图片本身不大于视图时直接返回原图
+     * 
+     * @param bitmap 原始图片
+     * @param viewWidth 显示区域宽度
+     * @param viewHeight 显示区域高度
+     * @return 代理图；不需要缩小时返回原图引用
+     */
+    public static Bitmap createPreviewProxy(Bitmap bitmap, int viewWidth, int viewHeight) {
+        if (bitmap == null || viewWidth <= 0 || viewHeight <= 0) {
+            return bitmap;
+        }
+        
+        float scale = Math.min(
+            (float) viewWidth / bitmap.getWidth(),
+            (float) viewHeight / bitmap.getHeight()
+        );
+        if (scale >= 1.0f) {
+            return bitmap;
+        }
+        
+        int newWidth = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int newHeight = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
+    }
+    
     /**
      * 旋转图片
      * 
@@ -88,6 +117,11 @@ public class ImageProcessUtils {
     public static Bitmap rotateImage(Bitmap bitmap, int angle) {
         if (bitmap == null) return null;
         
+        // 直角旋转直接搬移像素，无损且不需要Matrix绘制
+        if (angle % 90 == 0) {
+            return RightAngleTransform.transform(bitmap, angle / 90, false);
+        }
+        
         Matrix matrix = new Matrix();
         matrix.postRotate(angle, bitmap.getWidth() / 2f, bitmap.getHeight() / 2f);
         return Bitmap.createBitmap(bitmap, 0, 0, 
@@ -103,10 +137,7 @@ public class ImageProcessUtils {
     public static Bitmap flipHorizontal(Bitmap bitmap) {
         if (bitmap == null) return null;
         
-        Matrix matrix = new Matrix();
-        matrix.postScale(-1, 1, bitmap.getWidth() / 2f, bitmap.getHeight() / 2f);
-        return Bitmap.createBitmap(bitmap, 0, 0, 
-            bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        return RightAngleTransform.transform(bitmap, 0, true);
     }
     
     /**
@@ -118,10 +149,8 @@ public class ImageProcessUtils {
     public static Bitmap flipVertical(Bitmap bitmap) {
         if (bitmap == null) return null;
         
-        Matrix matrix = new Matrix();
-        matrix.postScale(1, -1, bitmap.getWidth() / 2f, bitmap.getHeight() / 2f);
-        return Bitmap.createBitmap(bitmap, 0, 0, 
-            bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        // 垂直翻转等价于水平翻转后旋转180度
+        return RightAngleTransform.transform(bitmap, 2, true);
     }
     
     /**
@@ -140,6 +169,45 @@ public class ImageProcessUtils {
             return bitmap;
         }
         
+        ColorLut lut = ColorLut.identity().andThen(brightnessContrastCurve(brightness, contrast));
+        return applyColorLut(bitmap, lut);
+    }
+    
+    /**
+     * 生成亮度和对比度调整的通道曲线
+     * 先以中间灰为中心应用对比度，再叠加亮度
+     * 
+     * @param brightness 亮度值（-100到100）
+     * @param contrast 对比度值（-50到150）
+     * @return 通道曲线，输入输出均为0-255的通道值
+     */
+    public static IntUnaryOperator brightnessContrastCurve(float brightness, float contrast) {
+        // 亮度：-100到100，映射到-1.0到1.0
+        float brightnessValue = brightness / 100.0f;
+        // 对比度：-50到150，映射到0.5到2.0（1.0表示无变化）
+        float contrastValue = 1.0f + (contrast / 100.0f);
+        
+        return value -> {
+            // 先应用对比度（在0-255范围内）
+            float norm = value / 255.0f;
+            norm = ((norm - 0.5f) * contrastValue + 0.5f);
+            int result = (int) (norm * 255);
+            // 再应用亮度
+            return (int) (result + brightnessValue * 255);
+        };
+    }
+    
+    /**
+     * 将颜色查找表应用到图片，一次遍历完成全部颜色处理
+     * 图片过大时先缩放到1200像素以内，输出为RGB_565格式的新图片
+     * 
+     * @param bitmap 原始图片
+     * @param lut 颜色查找表
+     * @return 处理后的新图片
+     */
+    public static Bitmap applyColorLut(Bitmap bitmap, ColorLut lut) {
+        if (bitmap == null) return null;
+        
         // 如果图片太大，先进行缩放以减少内存占用
         int maxDimension = 1200;
         Bitmap sourceBitmap = bitmap;
@@ -155,55 +223,20 @@ public class ImageProcessUtils {
             needScale = true;
         }
         
-        Bitmap result = sourceBitmap.copy(Bitmap.Config.RGB_565, true);
-        int width = result.getWidth();
-        int height = result.getHeight();
+        // 直接读取源图片像素，处理后写入新图片，不再额外复制一份源图片
+        int width = sourceBitmap.getWidth();
+        int height = sourceBitmap.getHeight();
         int[] pixels = new int[width * height];
-        result.getPixels(pixels, 0, width, 0, 0, width, height);
+        sourceBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
         
         // 如果创建了临时缩放Bitmap，释放它
         if (needScale && sourceBitmap != bitmap) {
             sourceBitmap.recycle();
         }
         
-        // 亮度：-100到100，映射到-1.0到1.0
-        float brightnessValue = brightness / 100.0f;
-        // 对比度：-50到150，映射到0.5到2.0（1.0表示无变化）
-        float contrastValue = 1.0f + (contrast / 100.0f);
-        
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int a = (pixel >> 24) & 0xFF;
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
-            
-            // 先应用对比度（在0-255范围内）
-            float rNorm = r / 255.0f;
-            float gNorm = g / 255.0f;
-            float bNorm = b / 255.0f;
-            
-            rNorm = ((rNorm - 0.5f) * contrastValue + 0.5f);
-            gNorm = ((gNorm - 0.5f) * contrastValue + 0.5f);
-            bNorm = ((bNorm - 0.5f) * contrastValue + 0.5f);
-            
-            r = (int) (rNorm * 255);
-            g = (int) (gNorm * 255);
-            b = (int) (bNorm * 255);
-            
-            // 再应用亮度
-            r = (int) (r + brightnessValue * 255);
-            g = (int) (g + brightnessValue * 255);
-            b = (int) (b + brightnessValue * 255);
-            
-            // 限制范围
-            r = Math.max(0, Math.min(255, r));
-            g = Math.max(0, Math.min(255, g));
-            b = Math.max(0, Math.min(255, b));
-            
-            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
-        }
+        lut.apply(pixels);
         
+        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
         result.setPixels(pixels, 0, width, 0, 0, width, height);
         return result;
     }
@@ -221,7 +254,22 @@ public class ImageProcessUtils {
         }
         
         Bitmap watermarked = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(watermarked);
+        drawWatermark(watermarked, watermark);
+        return watermarked;
+    }
+    
+    /**
+     * 在可修改的图片上直接绘制水印，不复制图片
+     * 
+     * @param bitmap 可修改的图片
+     * @param watermark 水印文字
+     */
+    public static void drawWatermark(Bitmap bitmap, String watermark) {
+        if (bitmap == null || watermark == null || watermark.isEmpty()) {
+            return;
+        }
+        
+        Canvas canvas = new Canvas(bitmap);
         
         Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
         paint.setColor(Color.WHITE);
@@ -232,11 +280,9 @@ public class ImageProcessUtils {
         paint.setTextSize(textSize);
         paint.setAlpha(220);
         
-        float x = watermarked.getWidth() - paint.measureText(watermark) - 30;
-        float y = watermarked.getHeight() - 30;
+        float x = bitmap.getWidth() - paint.measureText(watermark) - 30;
+        float y = bitmap.getHeight() - 30;
         
         canvas.drawText(watermark, x, y, paint);
-        
-        return watermarked;
     }
 }
@@ -0,0 +1,143 @@
+package com.tiktok.ic.camera.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 像素并行处理工具类
+ * 将像素区间（或图片的行）切分为若干条带，分发到大小等于CPU核心数的线程池中并行处理
+ *
+ * 条带的划分只取决于区间长度，各条带之间互不重叠，
+ * 只要每个像素的计算不依赖其他像素，结果就与串行处理完全一致
+ */
+public class ParallelPixelExecutor {
+
+    /**
+     * 条带处理任务，处理区间 [from, to)
+     */
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    // 每个条带最少处理的像素数，区间太小时并行调度的开销大于收益
+    public static final int MIN_PIXELS_PER_BAND = 64 * 1024;
+
+    private static final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final String THREAD_NAME_PREFIX = "pixel-worker-";
+
+    private static final AtomicInteger WORKER_INDEX = new AtomicInteger();
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + WORKER_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 线程池大小
+     */
+    public static int getThreadCount() {
+        return THREAD_COUNT;
+    }
+
+    /**
+     * 按像素区间并行处理，每个条带至少 {@link #MIN_PIXELS_PER_BAND} 个像素
+     *
+     * @param length 像素总数
+     * @param task 条带处理任务
+     */
+    public static void forEachRange(int length, RangeTask task) {
+        forEachRange(length, MIN_PIXELS_PER_BAND, task);
+    }
+
+    /**
+     * 按行并行处理，每个条带处理若干整行
+     *
+     * @param width 图片宽度
+     * @param height 图片高度
+     * @param task 条带处理任务，参数为行区间 [fromRow, toRow)
+     */
+    public static void forEachRowBand(int width, int height, RangeTask task) {
+        int minRows = Math.max(1, MIN_PIXELS_PER_BAND / Math.max(1, width));
+        forEachRange(height, minRows, task);
+    }
+
+    /**
+     * 将区间 [0, length) 切分为条带并行处理，调用线程同样参与处理
+     * 无论是否有条带抛出异常，都在所有条带完成后才返回
+     *
+     * @param length 区间长度
+     * @param minChunk 每个条带的最小长度
+     * @param task 条带处理任务
+     */
+    public static void forEachRange(int length, int minChunk, RangeTask task) {
+        if (length <= 0) {
+            return;
+        }
+
+        int bandCount = Math.min(THREAD_COUNT, (length + minChunk - 1) / Math.max(1, minChunk));
+        // 区间太小、只有单核，或已经在工作线程中（避免嵌套提交导致线程池死锁）时直接串行处理
+        if (bandCount <= 1 || isWorkerThread()) {
+            task.run(0, length);
+            return;
+        }
+
+        int bandSize = (length + bandCount - 1) / bandCount;
+        CountDownLatch latch = new CountDownLatch(bandCount - 1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (int band = 1; band < bandCount; band++) {
+            int from = band * bandSize;
+            int to = Math.min(length, from + bandSize);
+            POOL.execute(() -> {
+                try {
+                    if (from < to) {
+                        task.run(from, to);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        // 第一个条带在调用线程上处理；即使它抛出异常，也要等其他条带写完再返回，
+        // 否则调用方拿到异常后复用或释放像素数组时，工作线程仍在写入
+        try {
+            task.run(0, Math.min(length, bandSize));
+        } finally {
+            awaitUninterruptibly(latch);
+        }
+
+        RuntimeException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * 等待所有条带完成，等待期间不响应中断，完成后恢复线程的中断状态
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isWorkerThread() {
+        return Thread.currentThread().getName().startsWith(THREAD_NAME_PREFIX);
+    }
+}
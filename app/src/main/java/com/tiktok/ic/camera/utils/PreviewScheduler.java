@@ -0,0 +1,174 @@
+package com.tiktok.ic.camera.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 预览渲染调度器
+ * 在后台线程渲染预览图，只保留最新的一次请求（渲染期间到来的中间值直接丢弃），
+ * 渲染结果在下一帧绘制前发布到主线程，每帧最多发布一次。
+ * 渲染请求引用的图片不能在主线程直接回收，需要在 {@link #cancel} 之后通过 {@link #runAfterRendering} 回收
+ *
+ * @param <T> 渲染请求参数类型
+ */
+public class PreviewScheduler<T> {
+
+    /**
+     * 预览渲染器，在后台线程调用
+     */
+    public interface Renderer<T> {
+        Bitmap render(T request);
+    }
+
+    /**
+     * 预览结果监听器，在主线程调用
+     */
+    public interface Listener<T> {
+        /**
+         * 新的预览帧可以显示
+         */
+        void onFrameReady(T request, Bitmap frame);
+
+        /**
+         * 预览帧已过期（被更新的帧替换或请求已取消），由监听器决定是否释放
+         */
+        void onFrameDropped(T request, Bitmap frame);
+    }
+
+    private final Renderer<T> renderer;
+    private final Listener<T> listener;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 最新的待渲染请求，渲染线程取走后置空
+    private final AtomicReference<PendingRequest<T>> latestRequest = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicInteger generation = new AtomicInteger();
+    // 小于该代数的请求已被取消
+    private volatile int minValidGeneration = 0;
+
+    // 以下字段只在主线程访问
+    private T frameRequest;
+    private Bitmap frameBitmap;
+    private boolean frameCallbackPosted = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> publishFrame();
+
+    public PreviewScheduler(Renderer<T> renderer, Listener<T> listener) {
+        this.renderer = renderer;
+        this.listener = listener;
+    }
+
+    /**
+     * 提交新的渲染请求，会替换尚未开始渲染的旧请求
+     */
+    public void request(T request) {
+        latestRequest.set(new PendingRequest<>(request, generation.incrementAndGet()));
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * 取消所有未完成的请求，已渲染但未显示的帧会被丢弃
+     * 需要在主线程调用
+     */
+    public void cancel() {
+        minValidGeneration = generation.incrementAndGet();
+        latestRequest.set(null);
+        dropPendingFrame();
+    }
+
+    /**
+     * 在渲染线程上执行操作，排在所有已提交的请求之后
+     * 用于回收渲染请求引用的图片：执行时不会有渲染正在读取它。
+     * 需要在主线程、{@link #shutdown} 之前调用
+     */
+    public void runAfterRendering(Runnable action) {
+        executor.execute(action);
+    }
+
+    /**
+     * 停止调度器并释放后台线程，已提交的请求和操作仍会执行完
+     * 需要在主线程调用
+     */
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    private void drain() {
+        while (true) {
+            PendingRequest<T> pending = latestRequest.getAndSet(null);
+            if (pending == null) {
+                draining.set(false);
+                // 置位前后可能有新请求进入，由当前线程继续处理
+                if (latestRequest.get() != null && draining.compareAndSet(false, true)) {
+                    continue;
+                }
+                return;
+            }
+
+            Bitmap frame = renderer.render(pending.request);
+            if (frame != null) {
+                mainHandler.post(() -> enqueueFrame(pending, frame));
+            }
+        }
+    }
+
+    private void enqueueFrame(PendingRequest<T> pending, Bitmap frame) {
+        if (pending.generation < minValidGeneration) {
+            listener.onFrameDropped(pending.request, frame);
+            return;
+        }
+
+        // 渲染线程按顺序产出，新到的帧一定比待显示的帧更新
+        dropPendingFrame();
+        frameRequest = pending.request;
+        frameBitmap = frame;
+
+        if (!frameCallbackPosted) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    private void publishFrame() {
+        frameCallbackPosted = false;
+        if (frameBitmap == null) {
+            return;
+        }
+        T request = frameRequest;
+        Bitmap frame = frameBitmap;
+        frameRequest = null;
+        frameBitmap = null;
+        listener.onFrameReady(request, frame);
+    }
+
+    private void dropPendingFrame() {
+        if (frameBitmap != null) {
+            T request = frameRequest;
+            Bitmap frame = frameBitmap;
+            frameRequest = null;
+            frameBitmap = null;
+            listener.onFrameDropped(request, frame);
+        }
+    }
+
+    private static class PendingRequest<T> {
+        final T request;
+        final int generation;
+
+        PendingRequest(T request, int generation) {
+            this.request = request;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.tiktok.ic.camera.utils;
+
+import android.graphics.Bitmap;
+
+/**
+ * 直角旋转和翻转工具类
+ * 90/180/270度旋转和翻转只是像素位置的重排，直接搬移像素，不经过Matrix绘制和插值，结果无损。
+ *
+ * 旋转90/270度时源图按行读取、目标图按列写入，直接逐行处理时每写一个像素就跨越一整行，
+ * 缓存命中率很低；这里按 {@link #TILE_SIZE} x {@link #TILE_SIZE} 的小块处理，
+ * 一块的读写数据都能放进L1缓存。
+ *
+ * 变换定义为：先水平翻转（可选），再顺时针旋转 quarterTurns 个90度
+ */
+public class RightAngleTransform {
+
+    // 32x32个int，源和目标各4KB，能同时放进L1数据缓存
+    public static final int TILE_SIZE = 32;
+
+    /**
+     * 对图片做直角旋转/翻转
+     *
+     * @param bitmap 原始图片
+     * @param quarterTurns 顺时针旋转90度的次数（可以为负数）
+     * @param mirrored 旋转前是否水平翻转
+     * @return 变换后的新图片；变换为恒等时返回原图引用
+     */
+    public static Bitmap transform(Bitmap bitmap, int quarterTurns, boolean mirrored) {
+        if (bitmap == null) return null;
+        return transform(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), quarterTurns, mirrored);
+    }
+
+    /**
+     * 裁剪图片的一个区域并做直角旋转/翻转，只读取区域内的像素
+     *
+     * @param bitmap 原始图片
+     * @param x 区域左上角X坐标
+     * @param y 区域左上角Y坐标
+     * @param width 区域宽度
+     * @param height 区域高度
+     * @param quarterTurns 顺时针旋转90度的次数（可以为负数）
+     * @param mirrored 旋转前是否水平翻转
+     * @return 变换后的新图片；区域为整张图片且变换为恒等时返回原图引用
+     */
+    public static Bitmap transform(Bitmap bitmap, int x, int y, int width, int height,
+                                   int quarterTurns, boolean mirrored) {
+        if (bitmap == null) return null;
+
+        int turns = normalizeTurns(quarterTurns);
+        boolean fullImage = x == 0 && y == 0 && width == bitmap.getWidth() && height == bitmap.getHeight();
+        if (turns == 0 && !mirrored) {
+            return fullImage ? bitmap : Bitmap.createBitmap(bitmap, x, y, width, height);
+        }
+
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, x, y, width, height);
+
+        int[] result;
+        if (turns % 2 == 0) {
+            // 180度和翻转不改变宽高，直接在原数组上交换像素
+            transformInPlace(pixels, width, height, turns, mirrored);
+            result = pixels;
+        } else {
+            result = new int[width * height];
+            transform(pixels, width, height, turns, mirrored, result);
+        }
+
+        boolean swapSize = turns % 2 != 0;
+        int outWidth = swapSize ? height : width;
+        int outHeight = swapSize ? width : height;
+        Bitmap.Config config = bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap output = Bitmap.createBitmap(outWidth, outHeight, config);
+        output.setHasAlpha(bitmap.hasAlpha());
+        output.setPixels(result, 0, outWidth, 0, 0, outWidth, outHeight);
+        return output;
+    }
+
+    /**
+     * 将像素数组做直角旋转/翻转，写入目标数组
+     * 目标数组的宽高在旋转90/270度时与源数组互换，长度至少为 width * height，可以复用
+     *
+     * @param src 源像素数组
+     * @param width 源宽度
+     * @param height 源高度
+     * @param quarterTurns 顺时针旋转90度的次数（可以为负数）
+     * @param mirrored 旋转前是否水平翻转
+     * @param dst 目标像素数组，不能与src相同
+     */
+    public static void transform(int[] src, int width, int height, int quarterTurns, boolean mirrored,
+                                 int[] dst) {
+        if (src == dst) {
+            throw new IllegalArgumentException("Use transformInPlace for in-place transforms");
+        }
+        if (dst.length < width * height) {
+            throw new IllegalArgumentException("Destination buffer too small");
+        }
+
+        int turns = normalizeTurns(quarterTurns);
+
+        // 目标下标 = c + a * x' + b * y，其中 x' 为翻转后的源X坐标
+        long c;
+        int a;
+        int b;
+        switch (turns) {
+            case 1:
+                c = height - 1;
+                a = height;
+                b = -1;
+                break;
+            case 2:
+                c = (long) width * height - 1;
+                a = -1;
+                b = -width;
+                break;
+            case 3:
+                c = (long) (width - 1) * height;
+                a = -height;
+                b = 1;
+                break;
+            default:
+                c = 0;
+                a = 1;
+                b = width;
+                break;
+        }
+        // 代入 x' = width - 1 - x
+        final int stepX = mirrored ? -a : a;
+        final int base = (int) (mirrored ? c + (long) a * (width - 1) : c);
+        final int stepY = b;
+
+        if (stepX == 1 || stepX == -1) {
+            // 不转置时读写都是连续的，按行处理即可
+            ParallelPixelExecutor.forEachRowBand(width, height, (fromRow, toRow) -> {
+                for (int row = fromRow; row < toRow; row++) {
+                    int srcIndex = row * width;
+                    int dstIndex = base + row * stepY;
+                    if (stepX == 1) {
+                        System.arraycopy(src, srcIndex, dst, dstIndex, width);
+                    } else {
+                        for (int col = 0; col < width; col++) {
+                            dst[dstIndex - col] = src[srcIndex + col];
+                        }
+                    }
+                }
+            });
+            return;
+        }
+
+        // 转置：按小块处理，条带按整块的行数划分，各条带写入的目标区域互不重叠
+        int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int minTileRows = Math.max(1, ParallelPixelExecutor.MIN_PIXELS_PER_BAND / Math.max(1, width * TILE_SIZE));
+        ParallelPixelExecutor.forEachRange(tileRows, minTileRows, (fromTile, toTile) -> {
+            for (int tileY = fromTile * TILE_SIZE; tileY < Math.min(height, toTile * TILE_SIZE); tileY += TILE_SIZE) {
+                int rowEnd = Math.min(height, tileY + TILE_SIZE);
+                for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+                    int colEnd = Math.min(width, tileX + TILE_SIZE);
+                    for (int row = tileY; row < rowEnd; row++) {
+                        int srcIndex = row * width;
+                        int dstRow = base + row * stepY;
+                        for (int col = tileX; col < colEnd; col++) {
+                            dst[dstRow + col * stepX] = src[srcIndex + col];
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 在原数组上做180度旋转和/或水平翻转（不改变宽高的直角变换）
+     *
+     * @param pixels 像素数组
+     * @param width 宽度
+     * @param height 高度
+     * @param quarterTurns 顺时针旋转90度的次数，需要为偶数
+     * @param mirrored 旋转前是否水平翻转
+     */
+    public static void transformInPlace(int[] pixels, int width, int height, int quarterTurns, boolean mirrored) {
+        int turns = normalizeTurns(quarterTurns);
+        if (turns % 2 != 0) {
+            throw new IllegalArgumentException("In-place transform requires an even number of quarter turns");
+        }
+
+        boolean reverseRows = turns == 2; // 上下颠倒
+        boolean reverseColumns = (turns == 2) != mirrored; // 左右颠倒
+        if (!reverseRows && !reverseColumns) {
+            return;
+        }
+
+        if (reverseRows && reverseColumns) {
+            // 180度旋转等于整个数组倒序
+            ParallelPixelExecutor.forEachRange(pixels.length / 2, (from, to) -> {
+                int last = width * height - 1;
+                for (int i = from; i < to; i++) {
+                    int tmp = pixels[i];
+                    pixels[i] = pixels[last - i];
+                    pixels[last - i] = tmp;
+                }
+            });
+        } else if (reverseRows) {
+            // 垂直翻转：交换上下对称的两行
+            int[] rowBuffer = new int[width];
+            for (int top = 0, bottom = height - 1; top < bottom; top++, bottom--) {
+                System.arraycopy(pixels, top * width, rowBuffer, 0, width);
+                System.arraycopy(pixels, bottom * width, pixels, top * width, width);
+                System.arraycopy(rowBuffer, 0, pixels, bottom * width, width);
+            }
+        } else {
+            // 水平翻转：每行内部倒序
+            ParallelPixelExecutor.forEachRowBand(width, height, (fromRow, toRow) -> {
+                for (int row = fromRow; row < toRow; row++) {
+                    int left = row * width;
+                    int right = left + width - 1;
+                    while (left < right) {
+                        int tmp = pixels[left];
+                        pixels[left++] = pixels[right];
+                        pixels[right--] = tmp;
+                    }
+                }
+            });
+        }
+    }
+
+    private static int normalizeTurns(int quarterTurns) {
+        return ((quarterTurns % 4) + 4) % 4;
+    }
+}
@@ -6,6 +6,7 @@ import android.graphics.drawable.Drawable;
 
 import com.tiktok.ic.camera.widget.StickerView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,32 +16,26 @@ import java.util.List;
 public class StickerDrawUtils {
     
     /**
-     * 将贴纸列表绘制到图片上
+     * 记录贴纸视图当前的位置、大小和旋转角度
+     * 位置和大小按图片尺寸的比例保存，与图片分辨率无关
      * 
-     * @param bitmap 目标图片
      * @param stickerViews 贴纸视图列表
+     * @param imageWidth 图片宽度
+     * @param imageHeight 图片高度
      * @param imageViewWidth 图片视图宽度
      * @param imageViewHeight 图片视图高度
-     * @return 绘制后的图片
+     * @return 贴纸图层列表（保持层级顺序），视图尺寸未确定时返回空列表
      */
-    public static Bitmap drawStickersOnBitmap(
-            Bitmap bitmap,
+    public static List<StickerLayer> captureStickerLayers(
             List<StickerView> stickerViews,
+            float imageWidth,
+            float imageHeight,
             float imageViewWidth,
             float imageViewHeight) {
         
-        if (bitmap == null || stickerViews == null || stickerViews.isEmpty()) {
-            return bitmap;
-        }
-        
-        Bitmap result = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(result);
-        
-        float imageWidth = bitmap.getWidth();
-        float imageHeight = bitmap.getHeight();
-        
-        if (imageViewWidth == 0 || imageViewHeight == 0) {
-            return result;
+        List<StickerLayer> layers = new ArrayList<>();
+        if (stickerViews == null || stickerViews.isEmpty() || imageViewWidth == 0 || imageViewHeight == 0) {
+            return layers;
         }
         
         // 计算图片在ImageView中的实际显示区域
@@ -49,33 +44,21 @@ public class StickerDrawUtils {
                 imageWidth, imageHeight, imageViewWidth, imageViewHeight);
         
         if (displayInfo == null) {
-            return result;
+            return layers;
         }
         
-        // 按顺序绘制所有贴纸（保持层级关系）
         for (StickerView stickerView : stickerViews) {
-            // 获取贴纸在容器中的位置
-            float stickerX = stickerView.getX();
-            float stickerY = stickerView.getY();
-            float stickerWidth = stickerView.getWidth();
-            float stickerHeight = stickerView.getHeight();
+            // 获取贴纸drawable的原始尺寸
+            Drawable drawable = stickerView.getStickerDrawable();
+            if (drawable == null) continue;
             
             // 计算贴纸中心点在容器中的位置
-            float centerX = stickerX + stickerWidth / 2f;
-            float centerY = stickerY + stickerHeight / 2f;
+            float centerX = stickerView.getX() + stickerView.getWidth() / 2f;
+            float centerY = stickerView.getY() + stickerView.getHeight() / 2f;
             
             // 转换为图片坐标
             float[] imageCoords = ImageCoordinateUtils.viewToImageCoordinates(
                 centerX, centerY, displayInfo);
-            float imageX = imageCoords[0];
-            float imageY = imageCoords[1];
-            
-            float rotation = stickerView.getRotationAngle();
-            float scale = stickerView.getScaleFactor();
-            
-            // 获取贴纸drawable的原始尺寸
-            Drawable drawable = stickerView.getStickerDrawable();
-            if (drawable == null) continue;
             
             int drawableWidth = drawable.getIntrinsicWidth();
             int drawableHeight = drawable.getIntrinsicHeight();
@@ -84,31 +67,103 @@ public class StickerDrawUtils {
             
             // 计算绘制尺寸（考虑缩放，使用统一的缩放比例保持宽高比）
             float baseScale = Math.min(displayInfo.scaleX, displayInfo.scaleY);
+            float scale = stickerView.getScaleFactor();
             float drawWidth = drawableWidth * baseScale * scale;
             float drawHeight = drawableHeight * baseScale * scale;
             
+            // 图层可能在视图移除后重新绘制，复制一份drawable，避免与视图共用bounds
+            Drawable.ConstantState state = drawable.getConstantState();
+            Drawable layerDrawable = state != null ? state.newDrawable().mutate() : drawable;
+            
+            layers.add(new StickerLayer(
+                layerDrawable,
+                imageCoords[0] / imageWidth,
+                imageCoords[1] / imageHeight,
+                drawWidth / imageWidth,
+                drawHeight / imageHeight,
+                stickerView.getRotationAngle()));
+        }
+        
+        return layers;
+    }
+    
+    /**
+     * 将贴纸图层按顺序直接绘制到可修改的图片上
+     * 
+     * @param bitmap 可修改的目标图片
+     * @param layers 贴纸图层列表
+     */
+    public static void drawStickerLayers(Bitmap bitmap, List<StickerLayer> layers) {
+        if (bitmap == null || layers == null || layers.isEmpty()) {
+            return;
+        }
+        
+        drawStickerLayers(new Canvas(bitmap), bitmap.getWidth(), bitmap.getHeight(), layers);
+    }
+    
+    /**
+     * 将贴纸图层按顺序绘制到画布上
+     * 图层的比例坐标按给定的图片尺寸换算，画布可以预先设置变换（如导出时的缩放和旋转）
+     * 
+     * @param canvas 目标画布
+     * @param imageWidth 图层所在图片的宽度
+     * @param imageHeight 图层所在图片的高度
+     * @param layers 贴纸图层列表
+     */
+    public static void drawStickerLayers(Canvas canvas, float imageWidth, float imageHeight, 
+                                         List<StickerLayer> layers) {
+        if (canvas == null || layers == null || layers.isEmpty()) {
+            return;
+        }
+        
+        // 按顺序绘制所有贴纸（保持层级关系）
+        for (StickerLayer layer : layers) {
+            float drawWidth = layer.width * imageWidth;
+            float drawHeight = layer.height * imageHeight;
+            
             // 保存画布状态
             canvas.save();
             
             // 移动到贴纸中心位置
-            canvas.translate(imageX, imageY);
+            canvas.translate(layer.centerX * imageWidth, layer.centerY * imageHeight);
             
             // 旋转
-            canvas.rotate(rotation);
+            canvas.rotate(layer.rotation);
             
             // 设置drawable的bounds并绘制
-            drawable.setBounds(
+            layer.drawable.setBounds(
                 (int)(-drawWidth / 2),
                 (int)(-drawHeight / 2),
                 (int)(drawWidth / 2),
                 (int)(drawHeight / 2)
             );
-            drawable.draw(canvas);
+            layer.drawable.draw(canvas);
             
             // 恢复画布状态
             canvas.restore();
         }
+    }
+    
+    /**
+     * 贴纸图层
+     * 位置为贴纸中心点占图片宽高的比例，大小为占图片宽高的比例
+     */
+    public static class StickerLayer {
+        public final Drawable drawable;
+        public final float centerX;
+        public final float centerY;
+        public final float width;
+        public final float height;
+        public final float rotation;
         
-        return result;
+        public StickerLayer(Drawable drawable, float centerX, float centerY, 
+                            float width, float height, float rotation) {
+            this.drawable = drawable;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+        }
     }
 }
@@ -8,6 +8,7 @@ import android.graphics.Typeface;
 
 import com.tiktok.ic.camera.widget.EditableTextView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,34 +18,28 @@ import java.util.List;
 public class TextDrawUtils {
     
     /**
-     * 将文字列表绘制到图片上
+     * 记录文字视图当前的位置和样式
+     * 位置和字号按图片尺寸的比例保存，与图片分辨率无关，可以绘制到任意尺寸的同一张图片上
      * 
-     * @param bitmap 目标图片
      * @param textViews 文字视图列表
+     * @param imageWidth 图片宽度
+     * @param imageHeight 图片高度
      * @param imageViewWidth 图片视图宽度
      * @param imageViewHeight 图片视图高度
      * @param resources Resources对象（用于单位转换）
-     * @return 绘制后的图片
+     * @return 文字图层列表，视图尺寸未确定时返回空列表
      */
-    public static Bitmap drawTextsOnBitmap(
-            Bitmap bitmap,
+    public static List<TextLayer> captureTextLayers(
             List<EditableTextView> textViews,
+            float imageWidth,
+            float imageHeight,
             float imageViewWidth,
             float imageViewHeight,
             Resources resources) {
         
-        if (bitmap == null || textViews == null || textViews.isEmpty()) {
-            return bitmap;
-        }
-        
-        Bitmap result = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(result);
-        
-        float imageWidth = bitmap.getWidth();
-        float imageHeight = bitmap.getHeight();
-        
-        if (imageViewWidth == 0 || imageViewHeight == 0) {
-            return result;
+        List<TextLayer> layers = new ArrayList<>();
+        if (textViews == null || textViews.isEmpty() || imageViewWidth == 0 || imageViewHeight == 0) {
+            return layers;
         }
         
         // 计算图片在ImageView中的实际显示区域
@@ -53,7 +48,7 @@ public class TextDrawUtils {
                 imageWidth, imageHeight, imageViewWidth, imageViewHeight);
         
         if (displayInfo == null) {
-            return result;
+            return layers;
         }
         
         for (EditableTextView textView : textViews) {
@@ -61,21 +56,13 @@ public class TextDrawUtils {
                 continue;
             }
             
-            // 获取文字在容器中的位置
-            float textX = textView.getX();
-            float textY = textView.getY();
-            float textWidth = textView.getWidth();
-            float textHeight = textView.getHeight();
-            
             // 计算文字中心点在容器中的位置
-            float centerX = textX + textWidth / 2f;
-            float centerY = textY + textHeight / 2f;
+            float centerX = textView.getX() + textView.getWidth() / 2f;
+            float centerY = textView.getY() + textView.getHeight() / 2f;
             
             // 转换为图片坐标
             float[] imageCoords = ImageCoordinateUtils.viewToImageCoordinates(
                 centerX, centerY, displayInfo);
-            float imageX = imageCoords[0];
-            float imageY = imageCoords[1];
             
             // 获取文字样式信息
             float baseScale = Math.min(displayInfo.scaleX, displayInfo.scaleY);
@@ -83,24 +70,64 @@ public class TextDrawUtils {
             float textSizePx = textSizeSp * resources.getDisplayMetrics().scaledDensity; // 转换为px
             float textSize = textSizePx * textView.getScaleFactor() * baseScale;
             
-            int textColor = textView.getTextColor();
-            float rotation = textView.getRotationAngle();
-            Typeface typeface = textView.getTypeface();
+            layers.add(new TextLayer(
+                textView.getText(),
+                imageCoords[0] / imageWidth,
+                imageCoords[1] / imageHeight,
+                textSize / imageWidth,
+                textView.getTextColor(),
+                textView.getRotationAngle(),
+                textView.getTypeface()));
+        }
+        
+        return layers;
+    }
+    
+    /**
+     * 将文字图层直接绘制到可修改的图片上
+     * 
+     * @param bitmap 可修改的目标图片
+     * @param layers 文字图层列表
+     */
+    public static void drawTextLayers(Bitmap bitmap, List<TextLayer> layers) {
+        if (bitmap == null || layers == null || layers.isEmpty()) {
+            return;
+        }
+        
+        drawTextLayers(new Canvas(bitmap), bitmap.getWidth(), bitmap.getHeight(), layers);
+    }
+    
+    /**
+     * 将文字图层绘制到画布上
+     * 图层的比例坐标按给定的图片尺寸换算，画布可以预先设置变换（如导出时的缩放和旋转）
+     * 
+     * @param canvas 目标画布
+     * @param imageWidth 图层所在图片的宽度
+     * @param imageHeight 图层所在图片的高度
+     * @param layers 文字图层列表
+     */
+    public static void drawTextLayers(Canvas canvas, float imageWidth, float imageHeight, List<TextLayer> layers) {
+        if (canvas == null || layers == null || layers.isEmpty()) {
+            return;
+        }
+        
+        for (TextLayer layer : layers) {
+            float imageX = layer.centerX * imageWidth;
+            float imageY = layer.centerY * imageHeight;
             
             Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            paint.setColor(textColor);
-            paint.setTextSize(textSize);
-            paint.setTypeface(typeface);
+            paint.setColor(layer.color);
+            paint.setTextSize(layer.textSize * imageWidth);
+            paint.setTypeface(layer.typeface);
             
             // 保存画布状态
             canvas.save();
             
             // 应用旋转
-            canvas.rotate(rotation, imageX, imageY);
+            canvas.rotate(layer.rotation, imageX, imageY);
             
             // 绘制文字（支持多行）
-            String text = textView.getText();
-            String[] lines = text.split("\n");
+            String[] lines = layer.text.split("\n");
             float lineHeight = paint.getTextSize() * 1.2f;
             
             // 计算文字起始位置（多行文字需要从第一行开始向上偏移）
@@ -119,7 +146,30 @@ public class TextDrawUtils {
             // 恢复画布状态
             canvas.restore();
         }
+    }
+    
+    /**
+     * 文字图层
+     * 位置为文字中心点占图片宽高的比例，字号为占图片宽度的比例
+     */
+    public static class TextLayer {
+        public final String text;
+        public final float centerX;
+        public final float centerY;
+        public final float textSize;
+        public final int color;
+        public final float rotation;
+        public final Typeface typeface;
         
-        return result;
+        public TextLayer(String text, float centerX, float centerY, float textSize, 
+                         int color, float rotation, Typeface typeface) {
+            this.text = text;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.textSize = textSize;
+            this.color = color;
+            this.rotation = rotation;
+            this.typeface = typeface;
+        }
     }
 }
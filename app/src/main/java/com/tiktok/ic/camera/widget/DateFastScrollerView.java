@@ -0,0 +1,244 @@
+package com.tiktok.ic.camera.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.tiktok.ic.camera.media.MediaSections;
+
+/**
+ * 按年月快速滚动的滑块
+ * 覆盖在图片网格上方，只响应右侧边缘的触摸；每个月份在滑道上占相同的高度，
+ * 拖动时在滑块左侧显示当前月份，并跳转到该月第一张图片的位置（O(1)）。
+ * 少于两个月份或内容不足一屏时不显示
+ */
+public class DateFastScrollerView extends View {
+
+    /**
+     * 拖动滑块的回调
+     */
+    public interface OnPositionSelectedListener {
+        /**
+         * 拖动到新的月份时调用
+         *
+         * @param position 该月第一张图片的位置
+         */
+        void onPositionSelected(int position);
+
+        /**
+         * 松开滑块时调用
+         */
+        void onDragFinished();
+    }
+
+    private static final float TOUCH_WIDTH_DP = 40;
+    private static final float THUMB_WIDTH_DP = 6;
+    private static final float THUMB_HEIGHT_DP = 48;
+    private static final float TRACK_WIDTH_DP = 2;
+    private static final float BUBBLE_TEXT_SIZE_SP = 16;
+    private static final float BUBBLE_PADDING_DP = 12;
+    private static final float BUBBLE_MARGIN_DP = 16;
+
+    private Paint trackPaint;
+    private Paint thumbPaint;
+    private Paint bubblePaint;
+    private Paint bubbleTextPaint;
+    private final RectF thumbRect = new RectF();
+    private final RectF bubbleRect = new RectF();
+
+    private float density;
+    private MediaSections sections;
+    private int firstVisiblePosition;
+    private int visibleCount;
+    private int totalCount;
+    private boolean dragging;
+    private int dragSection = -1;
+    private OnPositionSelectedListener listener;
+
+    public DateFastScrollerView(Context context) {
+        super(context);
+        init();
+    }
+
+    public DateFastScrollerView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public DateFastScrollerView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        density = getResources().getDisplayMetrics().density;
+
+        trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        trackPaint.setColor(0x33FFFFFF);
+
+        thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        thumbPaint.setColor(0xFFFF7A18);
+
+        bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        bubblePaint.setColor(0xE6222533);
+
+        bubbleTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        bubbleTextPaint.setColor(0xFFFFFFFF);
+        bubbleTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, BUBBLE_TEXT_SIZE_SP,
+                getResources().getDisplayMetrics()));
+        bubbleTextPaint.setFakeBoldText(true);
+    }
+
+    public void setOnPositionSelectedListener(OnPositionSelectedListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置分段，列表内容变化后需要重新设置
+     */
+    public void setSections(MediaSections sections) {
+        this.sections = sections;
+        invalidate();
+    }
+
+    /**
+     * 同步列表的滚动位置，拖动期间由滑块自己决定位置
+     */
+    public void setScrollPosition(int firstVisiblePosition, int visibleCount, int totalCount) {
+        this.firstVisiblePosition = firstVisiblePosition;
+        this.visibleCount = visibleCount;
+        this.totalCount = totalCount;
+        if (!dragging) {
+            invalidate();
+        }
+    }
+
+    private boolean isScrollable() {
+        return sections != null && sections.getSectionCount() >= 2
+                && totalCount > visibleCount && getHeight() > 0;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // 只拦截右侧边缘的触摸，其余交给下方的网格
+                if (!isScrollable() || event.getX() < getWidth() - TOUCH_WIDTH_DP * density) {
+                    return false;
+                }
+                dragging = true;
+                dragSection = -1;
+                getParent().requestDisallowInterceptTouchEvent(true);
+                selectSection(event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (dragging) {
+                    selectSection(event.getY());
+                }
+                return dragging;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (dragging) {
+                    dragging = false;
+                    dragSection = -1;
+                    invalidate();
+                    if (listener != null) {
+                        listener.onDragFinished();
+                    }
+                    return true;
+                }
+                return false;
+            default:
+                return dragging;
+        }
+    }
+
+    /**
+     * 按触摸位置选择月份，同一个月份只跳转一次
+     */
+    private void selectSection(float y) {
+        int sectionCount = sections.getSectionCount();
+        float fraction = clamp((y - getTrackTop()) / getTrackLength());
+        int section = Math.min(sectionCount - 1, (int) (fraction * sectionCount));
+        if (section != dragSection) {
+            dragSection = section;
+            if (listener != null) {
+                listener.onPositionSelected(sections.getPositionForSection(section));
+            }
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!isScrollable()) {
+            return;
+        }
+
+        float right = getWidth() - getPaddingRight();
+        float trackWidth = TRACK_WIDTH_DP * density;
+        float thumbWidth = THUMB_WIDTH_DP * density;
+        float centerX = right - thumbWidth / 2;
+        canvas.drawRect(centerX - trackWidth / 2, getTrackTop(),
+                centerX + trackWidth / 2, getTrackTop() + getTrackLength() + THUMB_HEIGHT_DP * density, trackPaint);
+
+        int sectionCount = sections.getSectionCount();
+        float fraction;
+        int section;
+        if (dragging && dragSection >= 0) {
+            section = dragSection;
+            fraction = (float) section / sectionCount;
+        } else {
+            // 所在月份加上月份内的进度，与拖动时的映射一致
+            section = sections.getSectionForPosition(firstVisiblePosition);
+            int sectionLength = Math.max(1, sections.getSectionLength(section, totalCount));
+            float inSection = (float) (firstVisiblePosition - sections.getPositionForSection(section)) / sectionLength;
+            fraction = (section + inSection) / sectionCount;
+        }
+        float thumbTop = getTrackTop() + clamp(fraction) * getTrackLength();
+        thumbRect.set(right - thumbWidth, thumbTop, right, thumbTop + THUMB_HEIGHT_DP * density);
+        canvas.drawRoundRect(thumbRect, thumbWidth / 2, thumbWidth / 2, thumbPaint);
+
+        if (dragging) {
+            drawBubble(canvas, sections.getLabel(section), thumbRect.centerY());
+        }
+    }
+
+    private void drawBubble(Canvas canvas, String label, float centerY) {
+        float padding = BUBBLE_PADDING_DP * density;
+        Paint.FontMetrics metrics = bubbleTextPaint.getFontMetrics();
+        float textWidth = bubbleTextPaint.measureText(label);
+        float textHeight = metrics.descent - metrics.ascent;
+
+        float bubbleRight = thumbRect.left - BUBBLE_MARGIN_DP * density;
+        float bubbleHeight = textHeight + padding;
+        float top = Math.max(0, Math.min(getHeight() - bubbleHeight, centerY - bubbleHeight / 2));
+        bubbleRect.set(bubbleRight - textWidth - padding * 2, top, bubbleRight, top + bubbleHeight);
+        canvas.drawRoundRect(bubbleRect, bubbleHeight / 2, bubbleHeight / 2, bubblePaint);
+        canvas.drawText(label, bubbleRect.left + padding, bubbleRect.centerY() - (metrics.ascent + metrics.descent) / 2,
+                bubbleTextPaint);
+    }
+
+    private float getTrackTop() {
+        return getPaddingTop();
+    }
+
+    /**
+     * 滑块顶部可以移动的范围
+     */
+    private float getTrackLength() {
+        return Math.max(1, getHeight() - getPaddingTop() - getPaddingBottom() - THUMB_HEIGHT_DP * density);
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0, Math.min(1, value));
+    }
+}
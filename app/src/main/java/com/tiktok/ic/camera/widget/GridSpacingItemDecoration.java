@@ -0,0 +1,30 @@
+package com.tiktok.ic.camera.widget;
+
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 网格单元格间距
+ * 每个单元格四周各留出一半的间距，相邻单元格之间正好是一个间距；
+ * 网格边缘的半个间距与RecyclerView的内边距相加
+ */
+public class GridSpacingItemDecoration extends RecyclerView.ItemDecoration {
+
+    private final int halfSpacing;
+
+    /**
+     * @param spacing 单元格之间的间距，单位px
+     */
+    public GridSpacingItemDecoration(int spacing) {
+        this.halfSpacing = spacing / 2;
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent,
+                               @NonNull RecyclerView.State state) {
+        outRect.set(halfSpacing, halfSpacing, halfSpacing, halfSpacing);
+    }
+}
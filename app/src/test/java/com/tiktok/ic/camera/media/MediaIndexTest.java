@@ -0,0 +1,331 @@
+package com.tiktok.ic.camera.media;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * MediaIndex的排序插入、更新、批量删除、路径整理和快照隔离
+ */
+public class MediaIndexTest {
+
+    @Test
+    public void addPage_appendsOrderedPage() {
+        MediaIndex index = new MediaIndex();
+        assertTrue(index.addPage(Arrays.asList(item(3, 300), item(2, 200), item(1, 100))));
+        assertTrue(index.addPage(Arrays.asList(item(6, 90), item(5, 80))));
+
+        assertIds(index, 3, 2, 1, 6, 5);
+        assertEquals(path(6), index.getPath(3));
+        assertEquals(5, index.last().id);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void addPage_insertsOutOfOrderItemsSorted() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(Arrays.asList(item(5, 500), item(3, 300)));
+        // 排在已有图片之间，不能追加在末尾
+        assertFalse(index.addPage(Arrays.asList(item(4, 400), item(1, 100))));
+
+        assertIds(index, 5, 4, 3, 1);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void addPage_ordersSameDateByIdDescending() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(Arrays.asList(item(7, 100)));
+        assertFalse(index.addPage(Arrays.asList(item(9, 100))));
+        assertTrue(index.addPage(Arrays.asList(item(2, 100))));
+
+        assertIds(index, 9, 7, 2);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void addPage_updatesExistingItem() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(Arrays.asList(item(2, 200), item(1, 100)));
+        MediaItem moved = new MediaItem(1, "/sdcard/Pictures/renamed.jpg", 1, "Camera", 100, 640, 480, 0, 1024);
+
+        assertFalse(index.addPage(Arrays.asList(moved)));
+        assertEquals(2, index.size());
+        assertEquals("/sdcard/Pictures/renamed.jpg", index.get(1).path);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void update_movesRowWhenDateChanges() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(Arrays.asList(item(3, 300), item(2, 200), item(1, 100)));
+
+        index.update(item(1, 400));
+        assertIds(index, 1, 3, 2);
+        assertEquals(0, index.indexOf(1));
+        assertEquals(400, index.getDateAdded(0));
+
+        // 不存在的图片按插入处理
+        index.update(item(8, 250));
+        assertIds(index, 1, 3, 8, 2);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void merge_onlyModifiesChangedItems() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(Arrays.asList(item(2, 200), item(1, 100)));
+
+        assertFalse(index.merge(item(2, 200)));
+        MediaItem rotated = new MediaItem(2, path(2), 1, "Camera", 200, 640, 480, 90, 1024);
+        assertTrue(index.merge(rotated));
+        assertEquals(90, index.get(2).orientation);
+        assertTrue(index.merge(item(3, 150)));
+
+        assertIds(index, 2, 3, 1);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void getItem_roundTripsAllColumns() {
+        MediaIndex index = new MediaIndex();
+        MediaItem first = new MediaItem(11, "/sdcard/DCIM/图片.jpg", 42, "相机", 1000, 4000, 3000, 270, 5_000_000_000L);
+        MediaItem second = new MediaItem(10, "/sdcard/Download/a.png", 43, null, 900, 10, 20, 180, 7);
+        index.addPage(Arrays.asList(first, second));
+
+        assertTrue(index.getItem(0).isSameAs(first));
+        assertTrue(index.getItem(1).isSameAs(second));
+        assertEquals(42, index.getBucketId(0));
+        assertEquals("相机", index.getBucketName(0));
+        assertNull(index.getBucketName(1));
+    }
+
+    @Test
+    public void retain_removesMissingItemsAndKeepsOrder() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(6));
+
+        List<MediaItem> removed = index.retain(new long[]{6, 2, 4});
+        List<Long> removedIds = new ArrayList<>();
+        for (MediaItem item : removed) {
+            removedIds.add(item.id);
+        }
+        assertEquals(Arrays.asList(5L, 3L, 1L), removedIds);
+        assertEquals(path(3), removed.get(1).path);
+
+        assertIds(index, 6, 4, 2);
+        assertEquals(-1, index.indexOf(5));
+        assertNull(index.get(1));
+        assertConsistent(index);
+
+        // 没有删除时返回空列表，索引不变
+        assertTrue(index.retain(new long[]{2, 4, 6, 99}).isEmpty());
+        assertIds(index, 6, 4, 2);
+    }
+
+    @Test
+    public void retain_compactsPathsAndKeepsLookupValid() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(200));
+
+        // 删除四分之三的图片，已删除的路径超过一半，触发路径整理
+        long[] kept = new long[50];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = (i + 1) * 4;
+        }
+        index.retain(kept);
+
+        assertEquals(50, index.size());
+        for (long id : kept) {
+            int position = index.indexOf(id);
+            assertTrue("missing " + id, position >= 0);
+            assertEquals(path(id), index.getPath(position));
+        }
+        assertConsistent(index);
+
+        // 整理后继续插入和更新
+        index.update(item(1000, 1_000_000));
+        index.update(item(8, 0));
+        assertEquals(0, index.indexOf(1000));
+        assertEquals(index.size() - 1, index.indexOf(8));
+        assertConsistent(index);
+    }
+
+    @Test
+    public void update_compactsPathsAfterRepeatedRewrites() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(20));
+
+        // 反复更新同一张图片的路径，旧路径成为垃圾，超过一半后整理
+        for (int i = 0; i < 200; i++) {
+            index.update(new MediaItem(10, "/sdcard/DCIM/rewritten/" + i + ".jpg", 1, "Camera", 10 * 100,
+                    640, 480, 0, 1024));
+        }
+
+        assertEquals(20, index.size());
+        assertEquals("/sdcard/DCIM/rewritten/199.jpg", index.get(10).path);
+        for (long id = 1; id <= 20; id++) {
+            if (id != 10) {
+                assertEquals(path(id), index.get(id).path);
+            }
+        }
+        assertConsistent(index);
+    }
+
+    @Test
+    public void snapshot_isIsolatedFromLaterChanges() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(10));
+        MediaIndex snapshot = index.snapshot();
+
+        index.update(item(100, 100_000));
+        index.retain(new long[]{100, 1, 2});
+        index.addPage(Arrays.asList(item(0, 0)));
+        assertIds(snapshot, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
+        for (long id = 1; id <= 10; id++) {
+            assertEquals(path(id), snapshot.get(id).path);
+        }
+        assertConsistent(snapshot);
+        assertIds(index, 100, 2, 1, 0);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void snapshot_doesNotSeeAppendedRows() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(3));
+        MediaIndex first = index.snapshot();
+
+        // 追加在快照范围之外，包括新的相册
+        index.addPage(Arrays.asList(new MediaItem(-1, "/sdcard/Screenshots/s.png", 9, "Screenshots", 0,
+                1, 1, 0, 1)));
+        MediaIndex second = index.snapshot();
+        index.update(item(50, 5_000));
+
+        assertIds(first, 3, 2, 1);
+        assertEquals(-1, first.indexOf(-1));
+        assertIds(second, 3, 2, 1, -1);
+        assertEquals("Screenshots", second.getBucketName(3));
+        assertEquals("/sdcard/Screenshots/s.png", second.getPath(3));
+        assertConsistent(first);
+        assertConsistent(second);
+        assertIds(index, 50, 3, 2, 1, -1);
+    }
+
+    @Test
+    public void snapshot_survivesRemovalFollowedByAppend() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(4));
+        MediaIndex snapshot = index.snapshot();
+
+        // 删除最后一行后再追加，写入的位置在快照范围之内
+        index.retain(new long[]{4, 3, 2});
+        index.addPage(Arrays.asList(item(7, 10)));
+
+        assertIds(snapshot, 4, 3, 2, 1);
+        assertEquals(path(1), snapshot.getPath(3));
+        assertIds(index, 4, 3, 2, 7);
+        assertConsistent(index);
+    }
+
+    @Test
+    public void snapshot_keepsPathsAfterCompactionAndClear() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(40));
+        MediaIndex snapshot = index.snapshot();
+
+        index.retain(new long[]{1});
+        index.clear();
+        index.addPage(Arrays.asList(new MediaItem(99, "/x.jpg", 2, "Other", 1, 1, 1, 0, 1)));
+
+        assertEquals(40, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(path(snapshot.getId(i)), snapshot.getPath(i));
+            assertEquals("Camera", snapshot.getBucketName(i));
+        }
+        assertConsistent(snapshot);
+    }
+
+    @Test
+    public void snapshot_isReadOnly() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(2));
+        MediaIndex snapshot = index.snapshot();
+        assertSame(snapshot, snapshot.snapshot());
+
+        try {
+            snapshot.update(item(3, 300));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // 快照不能修改
+        }
+        try {
+            snapshot.clear();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // 快照不能修改
+        }
+        assertIds(snapshot, 2, 1);
+    }
+
+    @Test
+    public void clear_resetsRowsBucketsAndLookup() {
+        MediaIndex index = new MediaIndex();
+        index.addPage(items(5));
+        index.clear();
+
+        assertTrue(index.isEmpty());
+        assertNull(index.last());
+        assertEquals(-1, index.indexOf(3));
+
+        index.addPage(Arrays.asList(new MediaItem(3, path(3), 7, "Screenshots", 300, 1, 1, 0, 1)));
+        assertEquals(7, index.getBucketId(0));
+        assertEquals("Screenshots", index.getBucketName(0));
+        assertConsistent(index);
+    }
+
+    /**
+     * 每一行都能按ID找回，且行按(加入时间, ID)从新到旧排列
+     */
+    private static void assertConsistent(MediaIndex index) {
+        for (int i = 0; i < index.size(); i++) {
+            long id = index.getId(i);
+            assertEquals("indexOf(" + id + ")", i, index.indexOf(id));
+            assertEquals(id, index.get(id).id);
+            if (i > 0) {
+                assertTrue("row " + i + " out of order", index.getItem(i - 1).isBefore(index.getItem(i)));
+            }
+        }
+    }
+
+    private static void assertIds(MediaIndex index, long... ids) {
+        long[] actual = new long[index.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = index.getId(i);
+        }
+        assertArrayEquals(ids, actual);
+    }
+
+    /**
+     * ID为count到1、加入时间依次递减的图片
+     */
+    private static List<MediaItem> items(int count) {
+        List<MediaItem> items = new ArrayList<>();
+        for (long id = count; id >= 1; id--) {
+            items.add(item(id, id * 100));
+        }
+        return items;
+    }
+
+    private static MediaItem item(long id, long dateAdded) {
+        return new MediaItem(id, path(id), 1, "Camera", dateAdded, 640, 480, 0, 1024);
+    }
+
+    private static String path(long id) {
+        return "/storage/emulated/0/DCIM/Camera/IMG_" + id + ".jpg";
+    }
+}
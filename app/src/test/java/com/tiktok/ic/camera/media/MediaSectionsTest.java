@@ -0,0 +1,121 @@
+package com.tiktok.ic.camera.media;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * MediaSections按年月分段和按位置查找分段
+ * 月份按默认时区计算，测试中固定为UTC
+ */
+public class MediaSectionsTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void build_splitsIndexByMonth() {
+        TimeZone previous = TimeZone.getDefault();
+        TimeZone.setDefault(UTC);
+        try {
+            MediaSections sections = buildIndex(
+                    seconds(2024, 3, 15, 12, 0, 0),
+                    seconds(2024, 3, 1, 0, 0, 0),
+                    seconds(2024, 2, 29, 23, 59, 59),
+                    seconds(2024, 2, 1, 8, 30, 0),
+                    seconds(2023, 12, 31, 23, 59, 59),
+                    seconds(2023, 12, 1, 0, 0, 0),
+                    seconds(2023, 12, 1, 0, 0, 0)
+            ).getSections();
+
+            assertEquals(3, sections.getSectionCount());
+            assertEquals(0, sections.getPositionForSection(0));
+            assertEquals(2, sections.getPositionForSection(1));
+            assertEquals(4, sections.getPositionForSection(2));
+            assertEquals("2024年3月", sections.getLabel(0));
+            assertEquals("2024年2月", sections.getLabel(1));
+            assertEquals(2023, sections.getYear(2));
+            assertEquals(12, sections.getMonth(2));
+            assertEquals(2, sections.getSectionLength(0, 7));
+            assertEquals(3, sections.getSectionLength(2, 7));
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void getSectionForPosition_findsContainingSection() {
+        TimeZone previous = TimeZone.getDefault();
+        TimeZone.setDefault(UTC);
+        try {
+            MediaSections sections = buildIndex(
+                    seconds(2024, 5, 20, 0, 0, 0),
+                    seconds(2024, 5, 2, 0, 0, 0),
+                    seconds(2024, 5, 1, 0, 0, 0),
+                    seconds(2024, 1, 9, 0, 0, 0),
+                    seconds(2022, 7, 4, 0, 0, 0),
+                    seconds(2022, 7, 3, 0, 0, 0)
+            ).getSections();
+
+            int[] expected = {0, 0, 0, 1, 2, 2};
+            for (int position = 0; position < expected.length; position++) {
+                assertEquals("position " + position, expected[position], sections.getSectionForPosition(position));
+            }
+            for (int section = 0; section < sections.getSectionCount(); section++) {
+                assertEquals(section, sections.getSectionForPosition(sections.getPositionForSection(section)));
+            }
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void getSections_emptyIndexHasNoSections() {
+        assertEquals(0, new MediaIndex().getSections().getSectionCount());
+    }
+
+    @Test
+    public void getSections_rebuiltAfterIndexChanges() {
+        TimeZone previous = TimeZone.getDefault();
+        TimeZone.setDefault(UTC);
+        try {
+            MediaIndex index = buildIndex(seconds(2024, 3, 1, 0, 0, 0));
+            MediaSections before = index.getSections();
+            assertSame(before, index.getSections());
+
+            index.update(new MediaItem(100, "/sdcard/new.jpg", 1, "Camera", seconds(2024, 4, 1, 0, 0, 0),
+                    1, 1, 0, 1));
+            MediaSections after = index.getSections();
+            assertNotSame(before, after);
+            assertEquals(2, after.getSectionCount());
+            assertEquals("2024年4月", after.getLabel(0));
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+    }
+
+    /**
+     * 按给出的加入时间（从新到旧）依次生成图片
+     */
+    private static MediaIndex buildIndex(long... datesAdded) {
+        List<MediaItem> items = new ArrayList<>();
+        for (int i = 0; i < datesAdded.length; i++) {
+            long id = datesAdded.length - i;
+            items.add(new MediaItem(id, "/sdcard/DCIM/" + id + ".jpg", 1, "Camera", datesAdded[i], 1, 1, 0, 1));
+        }
+        MediaIndex index = new MediaIndex();
+        index.addPage(items);
+        return index;
+    }
+
+    private static long seconds(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis() / 1000;
+    }
+}
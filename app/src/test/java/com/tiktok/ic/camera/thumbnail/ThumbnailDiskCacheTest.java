@@ -0,0 +1,192 @@
+package com.tiktok.ic.camera.thumbnail;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * ThumbnailDiskCache的数据和索引文件读写，以及写入中途被中断后的恢复
+ * 每个测试使用单独的临时目录，重新创建缓存对象模拟下次启动
+ */
+public class ThumbnailDiskCacheTest {
+
+    private static final int SIZE = 300;
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @Test
+    public void putData_roundTripsAcrossInstances() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            cache.putData("/sdcard/b.jpg", SIZE, 2, data(2, 300));
+            assertArrayEquals(data(1, 100), cache.getData("/sdcard/a.jpg", SIZE, 1));
+
+            ThumbnailDiskCache reopened = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertArrayEquals(data(1, 100), reopened.getData("/sdcard/a.jpg", SIZE, 1));
+            assertArrayEquals(data(2, 300), reopened.getData("/sdcard/b.jpg", SIZE, 2));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void getData_missesOnOtherSizeOrModifiedTime() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+
+            assertNull(cache.getData("/sdcard/a.jpg", SIZE, 2));
+            assertNull(cache.getData("/sdcard/a.jpg", SIZE / 2, 1));
+            assertNull(cache.getData("/sdcard/b.jpg", SIZE, 1));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void putData_laterRecordOverridesEarlier() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            cache.putData("/sdcard/a.jpg", SIZE, 2, data(2, 200));
+            assertArrayEquals(data(2, 200), cache.getData("/sdcard/a.jpg", SIZE, 2));
+
+            ThumbnailDiskCache reopened = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertNull(reopened.getData("/sdcard/a.jpg", SIZE, 1));
+            assertArrayEquals(data(2, 200), reopened.getData("/sdcard/a.jpg", SIZE, 2));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void load_truncatesPartialIndexRecord() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            cache.putData("/sdcard/b.jpg", SIZE, 2, data(2, 150));
+            File indexFile = new File(directory, "thumbnails.idx");
+            long completeLength = indexFile.length();
+
+            // 模拟写索引时被中断：数据已写入，索引只写了一部分
+            appendBytes(new File(directory, "thumbnails.pack"), data(3, 80));
+            appendBytes(indexFile, data(4, 13));
+
+            ThumbnailDiskCache reopened = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertArrayEquals(data(1, 100), reopened.getData("/sdcard/a.jpg", SIZE, 1));
+            assertEquals(completeLength, indexFile.length());
+
+            // 之后追加的记录从完整记录的边界开始，再次启动后仍然可以读出
+            reopened.putData("/sdcard/c.jpg", SIZE, 3, data(5, 120));
+            reopened.putData("/sdcard/d.jpg", SIZE, 4, data(6, 90));
+
+            ThumbnailDiskCache relaunched = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertArrayEquals(data(1, 100), relaunched.getData("/sdcard/a.jpg", SIZE, 1));
+            assertArrayEquals(data(2, 150), relaunched.getData("/sdcard/b.jpg", SIZE, 2));
+            assertArrayEquals(data(5, 120), relaunched.getData("/sdcard/c.jpg", SIZE, 3));
+            assertArrayEquals(data(6, 90), relaunched.getData("/sdcard/d.jpg", SIZE, 4));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void load_ignoresRecordWithMissingData() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            cache.putData("/sdcard/b.jpg", SIZE, 2, data(2, 100));
+
+            // 数据文件被截断，第二条记录指向的数据不完整
+            try (RandomAccessFile packFile = new RandomAccessFile(new File(directory, "thumbnails.pack"), "rw")) {
+                packFile.setLength(150);
+            }
+
+            ThumbnailDiskCache reopened = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertArrayEquals(data(1, 100), reopened.getData("/sdcard/a.jpg", SIZE, 1));
+            assertNull(reopened.getData("/sdcard/b.jpg", SIZE, 2));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void load_resetsUnknownIndexFormat() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            try (RandomAccessFile indexFile = new RandomAccessFile(new File(directory, "thumbnails.idx"), "rw")) {
+                indexFile.writeInt(0);
+            }
+
+            ThumbnailDiskCache reopened = new ThumbnailDiskCache(directory, MAX_BYTES, null);
+            assertNull(reopened.getData("/sdcard/a.jpg", SIZE, 1));
+            assertEquals(0, new File(directory, "thumbnails.pack").length());
+            reopened.putData("/sdcard/a.jpg", SIZE, 1, data(2, 100));
+            assertArrayEquals(data(2, 100), reopened.getData("/sdcard/a.jpg", SIZE, 1));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void putData_resetsWhenPackExceedsLimit() throws IOException {
+        File directory = createDirectory();
+        try {
+            ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, 250, null);
+            cache.putData("/sdcard/a.jpg", SIZE, 1, data(1, 100));
+            cache.putData("/sdcard/b.jpg", SIZE, 2, data(2, 100));
+            cache.putData("/sdcard/c.jpg", SIZE, 3, data(3, 100));
+
+            assertNull(cache.getData("/sdcard/a.jpg", SIZE, 1));
+            assertNull(cache.getData("/sdcard/b.jpg", SIZE, 2));
+            assertArrayEquals(data(3, 100), cache.getData("/sdcard/c.jpg", SIZE, 3));
+            assertEquals(100, new File(directory, "thumbnails.pack").length());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * 内容由seed决定的测试数据，不同seed的数据互不相同
+     */
+    private static byte[] data(int seed, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed * 31 + i * 7);
+        }
+        return data;
+    }
+
+    private static void appendBytes(File file, byte[] data) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(randomAccessFile.length());
+            randomAccessFile.write(data);
+        }
+    }
+
+    private static File createDirectory() throws IOException {
+        return Files.createTempDirectory("thumbnail-cache").toFile();
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
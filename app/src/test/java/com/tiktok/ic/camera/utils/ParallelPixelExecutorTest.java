@@ -0,0 +1,100 @@
+package com.tiktok.ic.camera.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * ParallelPixelExecutor的条带划分，以及调用线程出错或被中断时仍然等待所有条带完成
+ * 单核环境下只有一个条带，结果与串行处理相同
+ */
+public class ParallelPixelExecutorTest {
+
+    private static final int BAND_COUNT = ParallelPixelExecutor.getThreadCount();
+    private static final int CHUNK = 16;
+
+    @Test
+    public void forEachRange_coversEveryIndexOnce() {
+        int length = BAND_COUNT * CHUNK + 7;
+        int[] visits = new int[length];
+        ParallelPixelExecutor.forEachRange(length, CHUNK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                visits[i]++;
+            }
+        });
+
+        for (int i = 0; i < length; i++) {
+            assertEquals("index " + i, 1, visits[i]);
+        }
+    }
+
+    @Test
+    public void forEachRange_waitsForBandsWhenCallerBandThrows() {
+        int length = BAND_COUNT * CHUNK;
+        AtomicInteger finished = new AtomicInteger();
+        RuntimeException thrown = new RuntimeException("band 0");
+        try {
+            ParallelPixelExecutor.forEachRange(length, CHUNK, (from, to) -> {
+                if (from == 0) {
+                    throw thrown;
+                }
+                sleep(100);
+                finished.incrementAndGet();
+            });
+            fail("expected exception");
+        } catch (RuntimeException e) {
+            assertSame(thrown, e);
+        }
+        assertEquals(BAND_COUNT - 1, finished.get());
+    }
+
+    @Test
+    public void forEachRange_waitsForBandsWhenInterrupted() {
+        int length = BAND_COUNT * CHUNK;
+        AtomicInteger finished = new AtomicInteger();
+        try {
+            ParallelPixelExecutor.forEachRange(length, CHUNK, (from, to) -> {
+                if (from == 0) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                sleep(100);
+                finished.incrementAndGet();
+            });
+
+            assertEquals(BAND_COUNT - 1, finished.get());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void forEachRange_rethrowsWorkerFailure() {
+        if (BAND_COUNT <= 1) {
+            return;
+        }
+        int length = BAND_COUNT * CHUNK;
+        RuntimeException thrown = new RuntimeException("last band");
+        try {
+            ParallelPixelExecutor.forEachRange(length, CHUNK, (from, to) -> {
+                if (to == length) {
+                    throw thrown;
+                }
+            });
+            fail("expected exception");
+        } catch (RuntimeException e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
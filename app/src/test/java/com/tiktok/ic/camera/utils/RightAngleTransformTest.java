@@ -0,0 +1,150 @@
+package com.tiktok.ic.camera.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * RightAngleTransform的像素数组变换与逐像素的参考实现对比
+ * 尺寸覆盖不是小块边长整数倍的情况，以及足够大、会被分成多个条带并行处理的情况
+ */
+public class RightAngleTransformTest {
+
+    private static final int[][] SIZES = {
+            {1, 1},
+            {1, 7},
+            {7, 1},
+            {2, 3},
+            {RightAngleTransform.TILE_SIZE, RightAngleTransform.TILE_SIZE},
+            {RightAngleTransform.TILE_SIZE + 1, RightAngleTransform.TILE_SIZE - 1},
+            {70, 45},
+            // 超过一个条带的像素数，会被分成多个条带
+            {613, 301},
+    };
+
+    @Test
+    public void transform_matchesReferenceForAllOrientations() {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int[] src = createPixels(width, height);
+            for (int turns = 0; turns < 4; turns++) {
+                for (boolean mirrored : new boolean[]{false, true}) {
+                    int[] dst = new int[width * height];
+                    RightAngleTransform.transform(src, width, height, turns, mirrored, dst);
+                    assertArrayEquals(describe(width, height, turns, mirrored),
+                            reference(src, width, height, turns, mirrored), dst);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void transform_normalizesNegativeAndLargeTurns() {
+        int width = 5;
+        int height = 3;
+        int[] src = createPixels(width, height);
+        for (int turns = -5; turns <= 9; turns++) {
+            int[] dst = new int[width * height];
+            RightAngleTransform.transform(src, width, height, turns, false, dst);
+            assertArrayEquals(describe(width, height, turns, false),
+                    reference(src, width, height, ((turns % 4) + 4) % 4, false), dst);
+        }
+    }
+
+    @Test
+    public void transform_leavesSourceUnchanged() {
+        int[] src = createPixels(70, 45);
+        int[] copy = src.clone();
+        RightAngleTransform.transform(src, 70, 45, 1, true, new int[src.length]);
+        assertArrayEquals(copy, src);
+    }
+
+    @Test
+    public void transform_rejectsSameArrayAndSmallDestination() {
+        int[] src = createPixels(4, 4);
+        try {
+            RightAngleTransform.transform(src, 4, 4, 1, false, src);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 原地变换需要使用transformInPlace
+        }
+        try {
+            RightAngleTransform.transform(src, 4, 4, 1, false, new int[15]);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 目标数组长度不足
+        }
+    }
+
+    @Test
+    public void transformInPlace_matchesReferenceForEvenTurns() {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int[] src = createPixels(width, height);
+            for (int turns = 0; turns < 4; turns += 2) {
+                for (boolean mirrored : new boolean[]{false, true}) {
+                    int[] pixels = src.clone();
+                    RightAngleTransform.transformInPlace(pixels, width, height, turns, mirrored);
+                    assertArrayEquals(describe(width, height, turns, mirrored),
+                            reference(src, width, height, turns, mirrored), pixels);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void transformInPlace_rejectsOddTurns() {
+        try {
+            RightAngleTransform.transformInPlace(createPixels(3, 2), 3, 2, 1, false);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 旋转90/270度会交换宽高，不能原地变换
+        }
+    }
+
+    /**
+     * 参考实现：先水平翻转，再逐次顺时针旋转90度，每次按坐标逐个搬移像素
+     */
+    private static int[] reference(int[] src, int width, int height, int turns, boolean mirrored) {
+        int[] pixels = src.clone();
+        if (mirrored) {
+            int[] flipped = new int[pixels.length];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    flipped[y * width + (width - 1 - x)] = pixels[y * width + x];
+                }
+            }
+            pixels = flipped;
+        }
+        int w = width;
+        int h = height;
+        for (int i = 0; i < turns; i++) {
+            // 顺时针旋转90度：(x, y) -> (h - 1 - y, x)，新的宽度为h
+            int[] rotated = new int[pixels.length];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    rotated[x * h + (h - 1 - y)] = pixels[y * w + x];
+                }
+            }
+            pixels = rotated;
+            int tmp = w;
+            w = h;
+            h = tmp;
+        }
+        return pixels;
+    }
+
+    private static int[] createPixels(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i;
+        }
+        return pixels;
+    }
+
+    private static String describe(int width, int height, int turns, boolean mirrored) {
+        return width + "x" + height + " turns=" + turns + " mirrored=" + mirrored;
+    }
+}